@@ -0,0 +1,126 @@
+package com.stocktracker.bench;
+
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
+import com.stocktracker.ui.charts.CandlestickChart;
+import com.stocktracker.ui.charts.TimeAxis;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+// Layout of the candlestick chart in a scene that is never shown, with the software
+// pipeline so no GPU is involved. Short series are laid out as nodes and long ones on the
+// canvas, as MainApp does. Each call is handed to the FX thread and waited for, which adds
+// a few microseconds of handoff to every sample.
+//
+// Needs a JavaFX toolkit: on a desktop this just works; on a headless box run it under
+// xvfb-run or put Monocle on the classpath and add -Dglass.platform=Monocle -Dmonocle.platform=Headless.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dprism.order=sw", "-Djavafx.animation.pulse=1000"})
+public class ChartLayoutBenchmark {
+    // Same cut-over as MainApp
+    private static final int CANVAS_RENDER_THRESHOLD = 500;
+
+    @Param({"30", "1000", "100000"})
+    public int bars;
+
+    private List<StockData> series;
+    private PriceSeries prices;
+    private CandlestickChart chart;
+
+    @Setup
+    public void start() throws Exception {
+        series = Fixtures.bars(bars);
+        prices = PriceSeries.of(series);
+        Platform.startup(() -> {
+        });
+        onFx(() -> {
+            NumberAxis yAxis = new NumberAxis();
+            yAxis.setForceZeroInRange(false);
+            chart = new CandlestickChart(new TimeAxis(), yAxis);
+            chart.setAnimated(false);
+            new Scene(chart, 1600, 900);
+            load();
+            chart.applyCss();
+            chart.layout();
+            return null;
+        });
+    }
+
+    @TearDown
+    public void stop() {
+        Platform.exit();
+    }
+
+    // Relayout of an already loaded chart, e.g. after a resize or an axis change
+    @Benchmark
+    public Object layout() throws Exception {
+        return onFx(() -> {
+            chart.requestLayout();
+            chart.layout();
+            return chart;
+        });
+    }
+
+    // Switching symbols: hand over the bars and lay them out
+    @Benchmark
+    public Object loadAndLayout() throws Exception {
+        return onFx(() -> {
+            load();
+            chart.layout();
+            return chart;
+        });
+    }
+
+    private void load() {
+        chart.getData().clear();
+        chart.resetZoom();
+        if (bars > CANVAS_RENDER_THRESHOLD) {
+            chart.setPriceSeries(prices);
+            return;
+        }
+        chart.setPriceSeries(null);
+        chart.setRenderMode(CandlestickChart.RenderMode.NODES);
+        XYChart.Series<Number, Number> data = new XYChart.Series<>();
+        for (StockData bar : series) {
+            data.getData().add(new XYChart.Data<>(bar.getEpochSecond(), bar.getClose(), bar));
+        }
+        chart.getData().add(data);
+    }
+
+    private static <T> T onFx(Callable<T> work) throws Exception {
+        FutureTask<T> task = new FutureTask<>(work);
+        Platform.runLater(task);
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (Exception) e.getCause();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.stocktracker.bench;
+
+import com.stocktracker.database.DatabaseManager;
+import com.stocktracker.models.StockData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Offline inputs for the benchmarks. A recorded API response dropped into
+// src/jmh/resources/fixtures/<name>.json is used as is; otherwise a payload in the exact
+// layout of TIME_SERIES_DAILY is generated from a fixed seed, so every run sees the same bytes.
+final class Fixtures {
+    static final int COMPACT_BARS = 100;
+    // Roughly what outputsize=full returns for a large cap: 20+ years of sessions
+    static final int FULL_BARS = 5_500;
+
+    private static final long SEED = 42;
+
+    private Fixtures() {
+    }
+
+    // "compact" or "full"
+    static byte[] dailySeries(String name) {
+        try (InputStream recorded = Fixtures.class.getResourceAsStream("/fixtures/daily-" + name + ".json")) {
+            if (recorded != null) {
+                return recorded.readAllBytes();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int bars = "full".equals(name) ? FULL_BARS : COMPACT_BARS;
+        return dailySeriesJson("IBM", bars(bars), "full".equals(name) ? "Full size" : "Compact")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Daily bars on consecutive weekdays ending 2024-12-31, oldest first
+    static List<StockData> bars(int count) {
+        Random random = new Random(SEED);
+        List<StockData> bars = new ArrayList<>(count);
+        LocalDate date = LocalDate.of(2024, 12, 31);
+        double close = 150;
+        for (int i = 0; i < count; i++) {
+            double open = close * (1 + random.nextGaussian() * 0.005);
+            close = open * (1 + random.nextGaussian() * 0.015);
+            double high = Math.max(open, close) * (1 + random.nextDouble() * 0.01);
+            double low = Math.min(open, close) * (1 - random.nextDouble() * 0.01);
+            long volume = 1_000_000 + random.nextInt(9_000_000);
+            bars.add(new StockData(date.atStartOfDay(), round(open), round(high), round(low), round(close), volume));
+            do {
+                date = date.minusDays(1);
+            } while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY);
+        }
+        Collections.reverse(bars);
+        return bars;
+    }
+
+    // Same layout and field order as the API, newest first
+    static String dailySeriesJson(String symbol, List<StockData> bars, String outputSize) {
+        StringBuilder json = new StringBuilder(bars.size() * 190 + 512);
+        String lastRefreshed = bars.isEmpty() ? "" : bars.get(bars.size() - 1).getTimestamp().toLocalDate().toString();
+        json.append("{\n    \"Meta Data\": {\n")
+                .append("        \"1. Information\": \"Daily Prices (open, high, low, close) and Volumes\",\n")
+                .append("        \"2. Symbol\": \"").append(symbol).append("\",\n")
+                .append("        \"3. Last Refreshed\": \"").append(lastRefreshed).append("\",\n")
+                .append("        \"4. Output Size\": \"").append(outputSize).append("\",\n")
+                .append("        \"5. Time Zone\": \"US/Eastern\"\n    },\n")
+                .append("    \"Time Series (Daily)\": {");
+        for (int i = bars.size() - 1; i >= 0; i--) {
+            StockData bar = bars.get(i);
+            json.append(i == bars.size() - 1 ? "\n" : ",\n")
+                    .append("        \"").append(bar.getTimestamp().toLocalDate()).append("\": {\n")
+                    .append(String.format(Locale.ROOT,
+                            "            \"1. open\": \"%.4f\",\n"
+                                    + "            \"2. high\": \"%.4f\",\n"
+                                    + "            \"3. low\": \"%.4f\",\n"
+                                    + "            \"4. close\": \"%.4f\",\n"
+                                    + "            \"5. volume\": \"%d\"\n        }",
+                            bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume()));
+        }
+        return json.append("\n    }\n}").toString();
+    }
+
+    private static double round(double price) {
+        return Math.round(price * 10_000) / 10_000.0;
+    }
+
+    // A throwaway SQLite database for one benchmark trial. DatabaseManager reads its URL once,
+    // so this has to run before anything touches it; JMH forks a fresh JVM per trial.
+    static final class ScratchDatabase implements AutoCloseable {
+        private final Path directory;
+
+        ScratchDatabase() {
+            try {
+                directory = Files.createTempDirectory("stocktracker-bench");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            System.setProperty("stocktracker.db.url", "jdbc:sqlite:" + directory.resolve("bench.db"));
+            DatabaseManager.initialize();
+        }
+
+        @Override
+        public void close() throws IOException {
+            DatabaseManager.shutdown();
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.stocktracker.bench;
+
+import com.stocktracker.database.daos.StockDAO;
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Reading the newest bars of one symbol from a scratch database that also holds other
+// symbols, so the query has to seek on the key rather than scan a single-symbol table
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+    private static final int STORED_BARS = 10_000;
+    private static final String SYMBOL = "IBM";
+
+    @Param({"30", "1000", "10000"})
+    public int lastBars;
+
+    private Fixtures.ScratchDatabase database;
+
+    @Setup
+    public void open() throws SQLException {
+        database = new Fixtures.ScratchDatabase();
+        List<StockData> bars = Fixtures.bars(STORED_BARS);
+        StockDAO.insertStockData("AAPL", bars);
+        StockDAO.insertStockData(SYMBOL, bars);
+        StockDAO.insertStockData("MSFT", bars);
+    }
+
+    @TearDown
+    public void close() throws IOException {
+        database.close();
+    }
+
+    @Benchmark
+    public List<StockData> getHistoricalData() throws SQLException {
+        return StockDAO.getHistoricalData(SYMBOL, lastBars);
+    }
+
+    @Benchmark
+    public PriceSeries getPriceSeries() throws SQLException {
+        return StockDAO.getPriceSeries(SYMBOL, lastBars);
+    }
+}
@@ -0,0 +1,79 @@
+package com.stocktracker.bench;
+
+import com.stocktracker.database.daos.StockDAO;
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Writing a fetched series to stock_data on a scratch database: one statement per bar
+// against the batched single-transaction upsert. Every call writes to a new symbol so the
+// upsert always inserts rather than matching unchanged rows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+    @Param({"100", "1000"})
+    public int bars;
+
+    private Fixtures.ScratchDatabase database;
+    private List<StockData> series;
+    private PriceSeries prices;
+    private int symbols;
+
+    @Setup
+    public void open() {
+        database = new Fixtures.ScratchDatabase();
+        series = Fixtures.bars(bars);
+        prices = PriceSeries.of(series);
+    }
+
+    @TearDown
+    public void close() throws IOException {
+        database.close();
+    }
+
+    @Benchmark
+    public int singleInserts() throws SQLException {
+        String symbol = nextSymbol();
+        int written = 0;
+        for (StockData bar : series) {
+            if (StockDAO.insertStockData(symbol, bar)) {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    @Benchmark
+    public int batchInsert() throws SQLException {
+        return StockDAO.insertStockData(nextSymbol(), series).getRowsWritten();
+    }
+
+    @Benchmark
+    public int batchInsertColumns() throws SQLException {
+        return StockDAO.insertStockData(nextSymbol(), prices).getRowsWritten();
+    }
+
+    private String nextSymbol() {
+        return "B" + symbols++;
+    }
+}
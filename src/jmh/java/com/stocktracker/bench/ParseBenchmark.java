@@ -0,0 +1,57 @@
+package com.stocktracker.bench;
+
+import com.stocktracker.api.ApiClient;
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Streaming parse of a whole daily series response, as objects and as columns.
+// Each call parses from a fresh in-memory buffer, the way a response body is read.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Dstocktracker.cache.dir=target/bench-http-cache")
+public class ParseBenchmark {
+    @Param({"compact", "full"})
+    public String payload;
+
+    private byte[] json;
+
+    @Setup
+    public void load() {
+        json = Fixtures.dailySeries(payload);
+    }
+
+    @Benchmark
+    public List<StockData> parseDailySeries() throws IOException {
+        return ApiClient.parseDailySeries(new Buffer().write(json), Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public PriceSeries parsePriceSeries() throws IOException {
+        return ApiClient.parsePriceSeries(new Buffer().write(json), Integer.MAX_VALUE);
+    }
+
+    // The common case: a chart only keeps the newest bars, the rest of the body is skipped
+    @Benchmark
+    public List<StockData> parseDefaultWindow() throws IOException {
+        return ApiClient.parseDailySeries(new Buffer().write(json), ApiClient.DEFAULT_BARS);
+    }
+}
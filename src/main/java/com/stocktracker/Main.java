@@ -1,17 +1,463 @@
 package com.stocktracker;
 
-//TIP To <b>Run</b> code, press <shortcut actionId="Run"/> or
-// click the <icon src="AllIcons.Actions.Execute"/> icon in the gutter.
+import com.stocktracker.analytics.Resampler;
+import com.stocktracker.api.ApiClient;
+import com.stocktracker.api.RateLimiter;
+import com.stocktracker.database.DatabaseManager;
+import com.stocktracker.database.daos.StockDAO;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
+import com.stocktracker.service.MarketDataService;
+import com.stocktracker.service.WatchlistScheduler;
+import com.stocktracker.storage.BarCsv;
+import com.stocktracker.util.DaemonThreads;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Headless entry point for ingest servers and scripts. Nothing reachable from here loads
+// JavaFX, so it starts in a fraction of a second without a display; the desktop app is
+// ui.MainApp. Run with no arguments for usage.
 public class Main {
+    private static final String USAGE = String.join("\n",
+            "Usage: java -cp <classpath> com.stocktracker.Main <command> [options]",
+            "",
+            "Commands:",
+            "  ingest --symbols FILE [--bars N] [--quotes MINUTES] [--series MINUTES] [--reload SECONDS]",
+            "         [--metrics FILE] [--once]",
+            "      Keep daily bars for the symbols in FILE up to date, paced across the API budget.",
+            "      The file is re-read every --reload seconds (default 60, 0 never); symbols are separated by",
+            "      whitespace or commas and # starts a comment. --quotes 0 (the default) skips quotes.",
+            "      --once brings every symbol up to date a single time and exits.",
+            "  export SYMBOL [--out FILE] [--from DATE] [--to DATE] [--intraday [--interval I] [--extended]]",
+            "      Write stored bars as CSV (to stdout without --out). Intraday bars can be",
+            "      resampled on the way out: --interval 1m, 5m, 15m, 1h or 1d (default 1m).",
+            "  import SYMBOL FILE [--intraday]",
+            "      Upsert bars from a CSV file with a timestamp,open,high,low,close,volume header.",
+            "  backfill SYMBOL MONTH [MONTH...]",
+            "      Fetch and store 1-minute bars for whole months, e.g. 2024-01.",
+            "",
+            "Dates are yyyy-MM-dd or yyyy-MM-dd HH:mm[:ss], in exchange time.");
+
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final Duration STATS_INTERVAL = Duration.ofMinutes(5);
+
+    // Set once the ingest daemon's shutdown hook owns closing the database
+    private static volatile boolean hookClosesDatabase;
+
     public static void main(String[] args) {
-        //TIP Press <shortcut actionId="ShowIntentionActions"/> with your caret at the highlighted text
-        // to see how IntelliJ IDEA suggests fixing it.
-        System.out.printf("Hello and welcome!");
+        if (args.length == 0 || "help".equals(args[0]) || "--help".equals(args[0])) {
+            System.out.println(USAGE);
+            System.exit(args.length == 0 ? EXIT_USAGE : 0);
+        }
+
+        int status;
+        try {
+            Arguments arguments = new Arguments(args);
+            switch (args[0]) {
+                case "ingest":
+                    status = ingest(arguments);
+                    break;
+                case "export":
+                    status = export(arguments);
+                    break;
+                case "import":
+                    status = importCsv(arguments);
+                    break;
+                case "backfill":
+                    status = backfill(arguments);
+                    break;
+                default:
+                    throw new UsageException("Unknown command: " + args[0]);
+            }
+        } catch (UsageException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.println(USAGE);
+            status = EXIT_USAGE;
+        } catch (IllegalArgumentException e) {
+            // Bad input data, e.g. a malformed CSV line
+            System.err.println(e.getMessage());
+            status = EXIT_FAILURE;
+        } catch (IOException | SQLException | RuntimeException e) {
+            e.printStackTrace();
+            status = EXIT_FAILURE;
+        } finally {
+            if (!hookClosesDatabase) {
+                DatabaseManager.shutdown();
+            }
+        }
+        System.exit(status);
+    }
+
+    private static int ingest(Arguments arguments) throws IOException, SQLException {
+        boolean once = arguments.flag("--once");
+        Path symbolsFile = Path.of(arguments.required("--symbols"));
+        int bars = arguments.intValue("--bars", ApiClient.OutputSize.COMPACT_BARS);
+        Duration quoteInterval = Duration.ofMinutes(arguments.intValue("--quotes", 0));
+        Duration seriesInterval = Duration.ofMinutes(arguments.intValue("--series", 60));
+        if (seriesInterval.isZero()) {
+            throw new UsageException("--series must be at least 1 minute");
+        }
+        Duration reload = Duration.ofSeconds(arguments.intValue("--reload", 60));
+        String metricsFile = arguments.value("--metrics", null);
+        arguments.done(1);
+
+        List<String> symbols = readSymbols(symbolsFile);
+        DatabaseManager.initialize();
+        if (once) {
+            return ingestOnce(symbols, bars);
+        }
+
+        if (metricsFile != null) {
+            Metrics.startDump(Path.of(metricsFile), Duration.ofMinutes(1));
+        }
+        WatchlistScheduler scheduler = new WatchlistScheduler(new WatchlistScheduler.Config()
+                .seriesBars(bars)
+                .quoteInterval(quoteInterval)
+                .seriesInterval(seriesInterval)
+                .persistWatchlist(false), null);
+        scheduler.addListener(new WatchlistScheduler.Listener() {
+            @Override
+            public void onSeries(String symbol, List<StockData> series) {
+                System.out.println("Ingested " + symbol + " through " + lastDate(series));
+            }
+
+            @Override
+            public void onFailure(String symbol, WatchlistScheduler.Job job, Exception error) {
+                System.out.println(symbol + ": " + job.name().toLowerCase() + " refresh failed, will retry: "
+                        + error.getMessage());
+            }
+        }, Runnable::run);
+        // The symbols come from the file only; the watchlist table belongs to the desktop app
+        scheduler.start();
+        syncWatchlist(scheduler, symbols);
+
+        ScheduledExecutorService timer =
+                Executors.newSingleThreadScheduledExecutor(DaemonThreads.named("ingest-timer"));
+        if (!reload.isZero()) {
+            timer.scheduleWithFixedDelay(() -> {
+                try {
+                    syncWatchlist(scheduler, readSymbols(symbolsFile));
+                } catch (IOException | SQLException e) {
+                    System.out.println("Symbol reload failed, keeping the current list: " + e.getMessage());
+                }
+            }, reload.toMillis(), reload.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        timer.scheduleAtFixedRate(() -> System.out.println(scheduler.stats()),
+                STATS_INTERVAL.toMillis(), STATS_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        // The hook closes the database once the worker is done with it; main must not
+        hookClosesDatabase = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            timer.shutdownNow();
+            scheduler.stop();
+            System.out.println(scheduler.stats());
+            Metrics.stopDump();
+            DatabaseManager.shutdown();
+            stopped.countDown();
+        }, "ingest-shutdown"));
+        System.out.println("Ingesting " + symbols.size() + " symbols from " + symbolsFile + "; stop with Ctrl+C");
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    // One pass over every symbol; the rate limiter paces the calls
+    private static int ingestOnce(List<String> symbols, int bars) {
+        int failed = 0;
+        for (String symbol : symbols) {
+            try {
+                List<StockData> loaded = MarketDataService.load(symbol, bars, RateLimiter.Priority.BACKGROUND);
+                System.out.println(symbol + ": " + loaded.size() + " bars through " + lastDate(loaded));
+            } catch (IOException | SQLException | RuntimeException e) {
+                failed++;
+                System.out.println(symbol + ": failed: " + e.getMessage());
+            }
+        }
+        System.out.println("Ingested " + (symbols.size() - failed) + " of " + symbols.size() + " symbols");
+        return failed == 0 ? 0 : EXIT_FAILURE;
+    }
+
+    private static String lastDate(List<StockData> bars) {
+        return bars.isEmpty() ? "-" : bars.get(bars.size() - 1).getTimestamp().toLocalDate().toString();
+    }
+
+    private static void syncWatchlist(WatchlistScheduler scheduler, List<String> symbols) throws SQLException {
+        Set<String> wanted = new HashSet<>(symbols);
+        for (String symbol : scheduler.getSymbols()) {
+            if (!wanted.contains(symbol)) {
+                scheduler.remove(symbol);
+                System.out.println("Stopped ingesting " + symbol);
+            }
+        }
+        Set<String> current = new HashSet<>(scheduler.getSymbols());
+        for (String symbol : symbols) {
+            if (!current.contains(symbol)) {
+                scheduler.add(symbol);
+            }
+        }
+    }
+
+    // Upper-cased and de-duplicated, in file order
+    static List<String> readSymbols(Path file) throws IOException {
+        Set<String> symbols = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int comment = line.indexOf('#');
+            String content = comment >= 0 ? line.substring(0, comment) : line;
+            for (String token : content.trim().split("[\\s,;]+")) {
+                if (!token.isEmpty()) {
+                    symbols.add(token.toUpperCase());
+                }
+            }
+        }
+        if (symbols.isEmpty()) {
+            throw new IOException("No symbols in " + file);
+        }
+        return new ArrayList<>(symbols);
+    }
+
+    private static int export(Arguments arguments) throws IOException, SQLException {
+        boolean intraday = arguments.flag("--intraday");
+        boolean extended = arguments.flag("--extended");
+        String symbol = arguments.positional(1).toUpperCase();
+        String out = arguments.value("--out", null);
+        String from = arguments.value("--from", null);
+        String to = arguments.value("--to", null);
+        Resampler.Interval interval = parseInterval(arguments.value("--interval", "1m"));
+        arguments.done(2);
+
+        // Status lines go to stderr so they don't end up in the CSV on stdout
+        PrintStream stdout = System.out;
+        if (out == null) {
+            System.setOut(System.err);
+        }
+        DatabaseManager.initialize();
+
+        StockDAO.HistoryQuery query = StockDAO.HistoryQuery.forSymbol(symbol);
+        if (intraday) {
+            query.intraday();
+        }
+        if (from != null) {
+            query.from(parseDate(from));
+        }
+        if (to != null) {
+            query.to(parseDate(to));
+        }
+        PriceSeries bars = StockDAO.getPriceSeries(query);
+        if (intraday) {
+            bars = Resampler.resample(bars, interval,
+                    extended ? Resampler.Session.EXTENDED : Resampler.Session.REGULAR);
+        }
+        boolean withTime = intraday && interval != Resampler.Interval.ONE_DAY;
+
+        if (out == null) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8));
+            BarCsv.write(bars, withTime, writer);
+            writer.flush();
+        } else {
+            try (Writer writer = Files.newBufferedWriter(Path.of(out), StandardCharsets.UTF_8)) {
+                BarCsv.write(bars, withTime, writer);
+            }
+        }
+        System.out.println("Exported " + bars.size() + " bars for " + symbol);
+        return 0;
+    }
+
+    private static int importCsv(Arguments arguments) throws IOException, SQLException {
+        boolean intraday = arguments.flag("--intraday");
+        String symbol = arguments.positional(1).toUpperCase();
+        Path file = Path.of(arguments.positional(2));
+        arguments.done(3);
+
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        DatabaseManager.initialize();
+        StockDAO.InsertResult result;
+        try (Stream<StockData> bars = BarCsv.read(reader)) {
+            result = intraday
+                    ? StockDAO.insertIntradayData(symbol, bars, StockDAO.DEFAULT_BATCH_SIZE)
+                    : StockDAO.insertStockData(symbol, bars, StockDAO.DEFAULT_BATCH_SIZE);
+        }
+        if (!intraday) {
+            MarketDataService.invalidate(symbol);
+        }
+        System.out.println("Imported " + result + " for " + symbol + " from " + file);
+        return 0;
+    }
+
+    private static int backfill(Arguments arguments) throws IOException, SQLException {
+        String symbol = arguments.positional(1).toUpperCase();
+        List<YearMonth> months = new ArrayList<>();
+        for (int i = 2; i < arguments.positionalCount(); i++) {
+            try {
+                months.add(YearMonth.parse(arguments.positional(i)));
+            } catch (DateTimeParseException e) {
+                throw new UsageException("Not a month (yyyy-MM): " + arguments.positional(i));
+            }
+        }
+        if (months.isEmpty()) {
+            throw new UsageException("backfill needs at least one month");
+        }
+        arguments.done(arguments.positionalCount());
+
+        DatabaseManager.initialize();
+        int rows = 0;
+        for (YearMonth month : months) {
+            rows += MarketDataService.backfillIntraday(symbol, month, RateLimiter.Priority.BACKGROUND);
+        }
+        System.out.println("Backfilled " + rows + " minute bars for " + symbol);
+        return 0;
+    }
+
+    private static LocalDateTime parseDate(String text) {
+        try {
+            return BarCsv.parseTimestamp(text);
+        } catch (DateTimeParseException e) {
+            throw new UsageException("Not a date: " + text);
+        }
+    }
+
+    private static Resampler.Interval parseInterval(String text) {
+        switch (text) {
+            case "1m":
+                return Resampler.Interval.ONE_MINUTE;
+            case "5m":
+                return Resampler.Interval.FIVE_MINUTES;
+            case "15m":
+                return Resampler.Interval.FIFTEEN_MINUTES;
+            case "1h":
+                return Resampler.Interval.ONE_HOUR;
+            case "1d":
+                return Resampler.Interval.ONE_DAY;
+            default:
+                throw new UsageException("Unknown interval: " + text);
+        }
+    }
+
+    // Positional arguments plus --name value options and --name flags
+    private static final class Arguments {
+        private final List<String> positional = new ArrayList<>();
+        private final Map<String, String> options = new HashMap<>();
+        private final Set<String> used = new HashSet<>();
+
+        Arguments(String[] args) {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (!arg.startsWith("--")) {
+                    positional.add(arg);
+                } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    options.put(arg, args[++i]);
+                } else {
+                    options.put(arg, null);
+                }
+            }
+        }
+
+        String positional(int index) {
+            if (index >= positional.size()) {
+                throw new UsageException(positional.get(0) + ": missing argument " + index);
+            }
+            return positional.get(index);
+        }
+
+        int positionalCount() {
+            return positional.size();
+        }
+
+        boolean flag(String name) {
+            used.add(name);
+            if (options.containsKey(name) && options.get(name) != null) {
+                // "--once foo" parsed foo as the flag's value; give it back as a positional
+                positional.add(options.put(name, null));
+            }
+            return options.containsKey(name);
+        }
+
+        String value(String name, String defaultValue) {
+            used.add(name);
+            if (!options.containsKey(name)) {
+                return defaultValue;
+            }
+            String value = options.get(name);
+            if (value == null) {
+                throw new UsageException(name + " needs a value");
+            }
+            return value;
+        }
+
+        String required(String name) {
+            String value = value(name, null);
+            if (value == null) {
+                throw new UsageException(positional.get(0) + " needs " + name);
+            }
+            return value;
+        }
+
+        int intValue(String name, int defaultValue) {
+            String value = value(name, null);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed < 0) {
+                    throw new NumberFormatException();
+                }
+                return parsed;
+            } catch (NumberFormatException e) {
+                throw new UsageException(name + " must be a non-negative number: " + value);
+            }
+        }
+
+        // Reject anything the command did not read
+        void done(int positionalExpected) {
+            for (String name : options.keySet()) {
+                if (!used.contains(name)) {
+                    throw new UsageException("Unknown option: " + name);
+                }
+            }
+            if (positional.size() > positionalExpected) {
+                throw new UsageException("Unexpected argument: " + positional.get(positionalExpected));
+            }
+        }
+    }
+
+    // A command line that doesn't parse; reported together with the usage text
+    private static final class UsageException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
 
-        for (int i = 1; i <= 5; i++) {
-            //TIP Press <shortcut actionId="Debug"/> to start debugging your code. We have set one <icon src="AllIcons.Debugger.Db_set_breakpoint"/> breakpoint
-            // for you, but you can always add more by pressing <shortcut actionId="ToggleLineBreakpoint"/>.
-            System.out.println("i = " + i);
+        UsageException(String message) {
+            super(message);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.stocktracker.analytics;
+
+// A technical indicator fed one bar at a time. Each call costs O(1) and allocates nothing,
+// so a long history is one pass and a refresh only pays for the bars it adds. The newest
+// bar can be revised in place (the session's forming candle) without replaying the rest.
+public interface Indicator {
+
+    void add(double open, double high, double low, double close, long volume);
+
+    // Replace the values of the bar most recently passed to add
+    void replaceLast(double open, double high, double low, double close, long volume);
+
+    // Number of output lines, e.g. 3 for Bollinger bands (middle, upper, lower)
+    int lines();
+
+    // Current value of an output line; NaN until enough bars have been seen
+    double value(int line);
+
+    // Label for the line as shown on the chart, e.g. "SMA(20)" or "BB(20, 2) upper"
+    String lineName(int line);
+
+    // Fresh instance with the same parameters and no bars
+    Indicator newInstance();
+}
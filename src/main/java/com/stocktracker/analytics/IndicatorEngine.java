@@ -0,0 +1,158 @@
+package com.stocktracker.analytics;
+
+import com.stocktracker.models.PriceSeries;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Keeps a set of indicators up to date for many symbols. Each symbol remembers how far its
+// bars have been fed, so a refresh that adds one bar per symbol costs O(1) per indicator
+// instead of a pass over the history; a series that was replaced (window moved, history
+// reloaded) is recomputed from scratch. Watchlist-wide updates fan out over a fork-join pool.
+public class IndicatorEngine {
+    // Symbols per fork-join leaf; one symbol's incremental update is far too small to split
+    private static final int SYMBOLS_PER_TASK = 8;
+
+    private final List<Indicator> prototypes;
+    private final ForkJoinPool pool;
+    private final Map<String, Tracked> symbols = new ConcurrentHashMap<>();
+
+    public IndicatorEngine(List<Indicator> indicators) {
+        this(indicators, ForkJoinPool.commonPool());
+    }
+
+    public IndicatorEngine(List<Indicator> indicators, ForkJoinPool pool) {
+        this.prototypes = List.copyOf(indicators);
+        this.pool = pool;
+    }
+
+    // One-off computation without tracking, in the order the indicators are given
+    public static List<IndicatorSeries> compute(PriceSeries bars, List<Indicator> indicators) {
+        Tracked tracked = new Tracked(indicators, bars.size());
+        tracked.update(bars);
+        return tracked.outputs;
+    }
+
+    // Bring one symbol up to date with its bars (oldest first); returns its outputs, in the
+    // order the indicators were given
+    public List<IndicatorSeries> update(String symbol, PriceSeries bars) {
+        Tracked tracked = symbols.computeIfAbsent(symbol, s -> new Tracked(prototypes, bars.size()));
+        synchronized (tracked) {
+            tracked.update(bars);
+        }
+        return tracked.outputs;
+    }
+
+    // Update every symbol in parallel and return the outputs by symbol
+    public Map<String, List<IndicatorSeries>> updateAll(Map<String, PriceSeries> barsBySymbol) {
+        List<Map.Entry<String, PriceSeries>> entries = new ArrayList<>(barsBySymbol.entrySet());
+        pool.invoke(new UpdateTask(entries, 0, entries.size()));
+
+        Map<String, List<IndicatorSeries>> results = new LinkedHashMap<>();
+        for (Map.Entry<String, PriceSeries> entry : entries) {
+            results.put(entry.getKey(), symbols.get(entry.getKey()).outputs);
+        }
+        return results;
+    }
+
+    public List<IndicatorSeries> get(String symbol) {
+        Tracked tracked = symbols.get(symbol);
+        return tracked == null ? null : tracked.outputs;
+    }
+
+    public void remove(String symbol) {
+        symbols.remove(symbol);
+    }
+
+    private final class UpdateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Map.Entry<String, PriceSeries>> entries;
+        private final int from;
+        private final int to;
+
+        UpdateTask(List<Map.Entry<String, PriceSeries>> entries, int from, int to) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SYMBOLS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    update(entries.get(i).getKey(), entries.get(i).getValue());
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new UpdateTask(entries, from, middle), new UpdateTask(entries, middle, to));
+        }
+    }
+
+    // One symbol's indicator state and outputs
+    private static final class Tracked {
+        private final List<Indicator> prototypes;
+        private final List<Indicator> indicators = new ArrayList<>();
+        private final List<IndicatorSeries> outputs = new ArrayList<>();
+        private int fed;
+        private long firstTime;
+        private long lastTime;
+
+        Tracked(List<Indicator> prototypes, int capacity) {
+            this.prototypes = prototypes;
+            for (Indicator prototype : prototypes) {
+                Indicator indicator = prototype.newInstance();
+                indicators.add(indicator);
+                outputs.add(new IndicatorSeries(indicator, capacity));
+            }
+        }
+
+        void update(PriceSeries bars) {
+            if (fed > 0 && (bars.size() < fed || bars.getTime(0) != firstTime
+                    || bars.getTime(fed - 1) != lastTime)) {
+                reset();
+            }
+            if (bars.isEmpty()) {
+                return;
+            }
+            PriceSeries.Cursor bar = bars.cursor();
+            int count = indicators.size();
+            if (fed > 0) {
+                // The newest bar fed may have been revised since (the forming candle)
+                bar.moveTo(fed - 1);
+                for (int k = 0; k < count; k++) {
+                    Indicator indicator = indicators.get(k);
+                    indicator.replaceLast(bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume());
+                    outputs.get(k).set(fed - 1, indicator);
+                }
+            } else {
+                bar.moveTo(-1);
+            }
+            while (bar.next()) {
+                int i = bar.index();
+                for (int k = 0; k < count; k++) {
+                    Indicator indicator = indicators.get(k);
+                    indicator.add(bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume());
+                    outputs.get(k).set(i, indicator);
+                }
+            }
+            fed = bars.size();
+            firstTime = bars.getTime(0);
+            lastTime = bars.getTime(fed - 1);
+        }
+
+        private void reset() {
+            for (int k = 0; k < indicators.size(); k++) {
+                indicators.set(k, prototypes.get(k).newInstance());
+                outputs.get(k).clear();
+            }
+            fed = 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.stocktracker.analytics;
+
+import java.util.Arrays;
+
+// Output of one indicator over a price series: a column per line, index-aligned with the
+// bars it was computed from. Grows as the engine feeds new bars.
+public class IndicatorSeries {
+    private final String[] names;
+    private double[][] values;
+    private int size;
+
+    IndicatorSeries(Indicator indicator, int capacity) {
+        names = new String[indicator.lines()];
+        values = new double[names.length][];
+        for (int line = 0; line < names.length; line++) {
+            names[line] = indicator.lineName(line);
+            // Room for a good number of refreshes before the columns have to grow
+            values[line] = new double[capacity + (capacity >> 3) + 16];
+        }
+    }
+
+    public int lines() {
+        return names.length;
+    }
+
+    public String getName(int line) {
+        return names[line];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double get(int line, int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Value " + index + " of " + size);
+        }
+        return values[line][index];
+    }
+
+    // Copy of one line, e.g. for export
+    public double[] toArray(int line) {
+        return Arrays.copyOf(values[line], size);
+    }
+
+    // Record the indicator's current values for bar index (at most one past the end)
+    void set(int index, Indicator indicator) {
+        if (index == values[0].length) {
+            int grown = index + (index >> 1) + 16;
+            for (int line = 0; line < values.length; line++) {
+                values[line] = Arrays.copyOf(values[line], grown);
+            }
+        }
+        for (int line = 0; line < values.length; line++) {
+            values[line][index] = indicator.value(line);
+        }
+        size = Math.max(size, index + 1);
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,479 @@
+package com.stocktracker.analytics;
+
+// The built-in indicators. Sliding windows keep running sums over a ring buffer, and each
+// implementation remembers the state from before the newest bar so replaceLast is O(1).
+public final class Indicators {
+    // Running window sums are recomputed from the ring this often to stop rounding drift
+    private static final int RESYNC_INTERVAL = 4096;
+
+    private Indicators() {
+    }
+
+    public static Sma sma(int period) {
+        return new Sma(period);
+    }
+
+    public static Ema ema(int period) {
+        return new Ema(period);
+    }
+
+    public static Rsi rsi(int period) {
+        return new Rsi(period);
+    }
+
+    public static Macd macd(int fast, int slow, int signal) {
+        return new Macd(fast, slow, signal);
+    }
+
+    public static BollingerBands bollinger(int period, double deviations) {
+        return new BollingerBands(period, deviations);
+    }
+
+    public static Vwap vwap() {
+        return new Vwap();
+    }
+
+    private static int requirePeriod(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        return period;
+    }
+
+    // Fixed-size window over the most recent values with their sum and sum of squares
+    private static final class Window {
+        private final double[] ring;
+        private int next;
+        private int count;
+        private int sinceResync;
+        double sum;
+        double sumOfSquares;
+
+        Window(int period) {
+            ring = new double[period];
+        }
+
+        boolean isFull() {
+            return count == ring.length;
+        }
+
+        void add(double value) {
+            if (isFull()) {
+                double dropped = ring[next];
+                sum -= dropped;
+                sumOfSquares -= dropped * dropped;
+            } else {
+                count++;
+            }
+            ring[next] = value;
+            next = (next + 1) % ring.length;
+            sum += value;
+            sumOfSquares += value * value;
+            if (++sinceResync == RESYNC_INTERVAL) {
+                resync();
+            }
+        }
+
+        void replaceLast(double value) {
+            int last = (next + ring.length - 1) % ring.length;
+            double old = ring[last];
+            ring[last] = value;
+            sum += value - old;
+            sumOfSquares += value * value - old * old;
+        }
+
+        private void resync() {
+            sum = 0;
+            sumOfSquares = 0;
+            for (int i = 0; i < count; i++) {
+                sum += ring[i];
+                sumOfSquares += ring[i] * ring[i];
+            }
+            sinceResync = 0;
+        }
+    }
+
+    // Simple moving average of the close
+    public static final class Sma implements Indicator {
+        private final int period;
+        private final Window window;
+
+        Sma(int period) {
+            this.period = requirePeriod(period);
+            this.window = new Window(period);
+        }
+
+        public void add(double value) {
+            window.add(value);
+        }
+
+        public void replaceLast(double value) {
+            window.replaceLast(value);
+        }
+
+        public double value() {
+            return window.isFull() ? window.sum / period : Double.NaN;
+        }
+
+        @Override
+        public void add(double open, double high, double low, double close, long volume) {
+            add(close);
+        }
+
+        @Override
+        public void replaceLast(double open, double high, double low, double close, long volume) {
+            replaceLast(close);
+        }
+
+        @Override
+        public int lines() {
+            return 1;
+        }
+
+        @Override
+        public double value(int line) {
+            return value();
+        }
+
+        @Override
+        public String lineName(int line) {
+            return "SMA(" + period + ")";
+        }
+
+        @Override
+        public Indicator newInstance() {
+            return new Sma(period);
+        }
+    }
+
+    // Exponential moving average of the close, seeded with the SMA of the first period values
+    public static final class Ema implements Indicator {
+        private final int period;
+        private final double alpha;
+        private int count;
+        private double seedSum;
+        private double ema = Double.NaN;
+        private double previousEma = Double.NaN;
+        private double last;
+
+        Ema(int period) {
+            this.period = requirePeriod(period);
+            this.alpha = 2.0 / (period + 1);
+        }
+
+        public void add(double value) {
+            count++;
+            last = value;
+            if (count <= period) {
+                seedSum += value;
+                if (count == period) {
+                    ema = seedSum / period;
+                }
+            } else {
+                previousEma = ema;
+                ema = previousEma + alpha * (value - previousEma);
+            }
+        }
+
+        public void replaceLast(double value) {
+            if (count == 0) return;
+            if (count <= period) {
+                seedSum += value - last;
+                if (count == period) {
+                    ema = seedSum / period;
+                }
+            } else {
+                ema = previousEma + alpha * (value - previousEma);
+            }
+            last = value;
+        }
+
+        public boolean isReady() {
+            return count >= period;
+        }
+
+        public double value() {
+            return isReady() ? ema : Double.NaN;
+        }
+
+        @Override
+        public void add(double open, double high, double low, double close, long volume) {
+            add(close);
+        }
+
+        @Override
+        public void replaceLast(double open, double high, double low, double close, long volume) {
+            replaceLast(close);
+        }
+
+        @Override
+        public int lines() {
+            return 1;
+        }
+
+        @Override
+        public double value(int line) {
+            return value();
+        }
+
+        @Override
+        public String lineName(int line) {
+            return "EMA(" + period + ")";
+        }
+
+        @Override
+        public Indicator newInstance() {
+            return new Ema(period);
+        }
+    }
+
+    // Wilder's relative strength index of the close, 0-100
+    public static final class Rsi implements Indicator {
+        private final int period;
+        private int changes;
+        private double lastClose = Double.NaN;
+        private double previousClose = Double.NaN;
+        private double gainSum, lossSum, averageGain, averageLoss;
+        // State from before the newest change, restored by replaceLast
+        private double savedGainSum, savedLossSum, savedAverageGain, savedAverageLoss;
+
+        Rsi(int period) {
+            this.period = requirePeriod(period);
+        }
+
+        @Override
+        public void add(double open, double high, double low, double close, long volume) {
+            if (!Double.isNaN(lastClose)) {
+                previousClose = lastClose;
+                savedGainSum = gainSum;
+                savedLossSum = lossSum;
+                savedAverageGain = averageGain;
+                savedAverageLoss = averageLoss;
+                changes++;
+                apply(close - previousClose);
+            }
+            lastClose = close;
+        }
+
+        @Override
+        public void replaceLast(double open, double high, double low, double close, long volume) {
+            if (!Double.isNaN(previousClose)) {
+                gainSum = savedGainSum;
+                lossSum = savedLossSum;
+                averageGain = savedAverageGain;
+                averageLoss = savedAverageLoss;
+                apply(close - previousClose);
+            }
+            lastClose = close;
+        }
+
+        private void apply(double change) {
+            double gain = Math.max(change, 0);
+            double loss = Math.max(-change, 0);
+            if (changes <= period) {
+                gainSum += gain;
+                lossSum += loss;
+                if (changes == period) {
+                    averageGain = gainSum / period;
+                    averageLoss = lossSum / period;
+                }
+            } else {
+                averageGain = (averageGain * (period - 1) + gain) / period;
+                averageLoss = (averageLoss * (period - 1) + loss) / period;
+            }
+        }
+
+        @Override
+        public int lines() {
+            return 1;
+        }
+
+        @Override
+        public double value(int line) {
+            if (changes < period) return Double.NaN;
+            if (averageLoss == 0) return averageGain == 0 ? 50 : 100;
+            return 100 - 100 / (1 + averageGain / averageLoss);
+        }
+
+        @Override
+        public String lineName(int line) {
+            return "RSI(" + period + ")";
+        }
+
+        @Override
+        public Indicator newInstance() {
+            return new Rsi(period);
+        }
+    }
+
+    // MACD line (fast EMA - slow EMA), its signal EMA and the histogram between them
+    public static final class Macd implements Indicator {
+        public static final int MACD = 0;
+        public static final int SIGNAL = 1;
+        public static final int HISTOGRAM = 2;
+
+        private final Ema fast;
+        private final Ema slow;
+        private final Ema signal;
+        private boolean signalFedLast;
+
+        Macd(int fast, int slow, int signal) {
+            if (fast >= slow) {
+                throw new IllegalArgumentException("Fast period must be shorter than slow: " + fast + " >= " + slow);
+            }
+            this.fast = new Ema(fast);
+            this.slow = new Ema(slow);
+            this.signal = new Ema(signal);
+        }
+
+        @Override
+        public void add(double open, double high, double low, double close, long volume) {
+            fast.add(close);
+            slow.add(close);
+            signalFedLast = slow.isReady();
+            if (signalFedLast) {
+                signal.add(fast.value() - slow.value());
+            }
+        }
+
+        @Override
+        public void replaceLast(double open, double high, double low, double close, long volume) {
+            fast.replaceLast(close);
+            slow.replaceLast(close);
+            if (signalFedLast) {
+                signal.replaceLast(fast.value() - slow.value());
+            }
+        }
+
+        @Override
+        public int lines() {
+            return 3;
+        }
+
+        @Override
+        public double value(int line) {
+            double macd = slow.isReady() ? fast.value() - slow.value() : Double.NaN;
+            switch (line) {
+                case MACD:
+                    return macd;
+                case SIGNAL:
+                    return signal.value();
+                default:
+                    return macd - signal.value();
+            }
+        }
+
+        @Override
+        public String lineName(int line) {
+            String name = "MACD(" + fast.period + ", " + slow.period + ", " + signal.period + ")";
+            return line == MACD ? name : name + (line == SIGNAL ? " signal" : " histogram");
+        }
+
+        @Override
+        public Indicator newInstance() {
+            return new Macd(fast.period, slow.period, signal.period);
+        }
+    }
+
+    // SMA of the close with bands a number of (population) standard deviations either side
+    public static final class BollingerBands implements Indicator {
+        public static final int MIDDLE = 0;
+        public static final int UPPER = 1;
+        public static final int LOWER = 2;
+
+        private final int period;
+        private final double deviations;
+        private final Window window;
+
+        BollingerBands(int period, double deviations) {
+            this.period = requirePeriod(period);
+            this.deviations = deviations;
+            this.window = new Window(period);
+        }
+
+        @Override
+        public void add(double open, double high, double low, double close, long volume) {
+            window.add(close);
+        }
+
+        @Override
+        public void replaceLast(double open, double high, double low, double close, long volume) {
+            window.replaceLast(close);
+        }
+
+        @Override
+        public int lines() {
+            return 3;
+        }
+
+        @Override
+        public double value(int line) {
+            if (!window.isFull()) return Double.NaN;
+            double mean = window.sum / period;
+            if (line == MIDDLE) return mean;
+            // Rounding can leave a tiny negative variance for a flat window
+            double deviation = Math.sqrt(Math.max(0, window.sumOfSquares / period - mean * mean));
+            return line == UPPER ? mean + deviations * deviation : mean - deviations * deviation;
+        }
+
+        @Override
+        public String lineName(int line) {
+            String name = String.format("BB(%d, %s)", period, deviations % 1 == 0
+                    ? Integer.toString((int) deviations) : Double.toString(deviations));
+            return line == MIDDLE ? name : name + (line == UPPER ? " upper" : " lower");
+        }
+
+        @Override
+        public Indicator newInstance() {
+            return new BollingerBands(period, deviations);
+        }
+    }
+
+    // Volume-weighted average of the typical price (high + low + close) / 3, cumulative from
+    // the first bar fed, i.e. anchored at the start of the series. It is not reset per session:
+    // on daily bars that would leave just the typical price.
+    public static final class Vwap implements Indicator {
+        private double priceVolume;
+        private double volume;
+        private double lastPriceVolume;
+        private double lastVolume;
+
+        Vwap() {
+        }
+
+        @Override
+        public void add(double open, double high, double low, double close, long volume) {
+            lastVolume = volume;
+            lastPriceVolume = (high + low + close) / 3 * volume;
+            this.volume += lastVolume;
+            this.priceVolume += lastPriceVolume;
+        }
+
+        @Override
+        public void replaceLast(double open, double high, double low, double close, long volume) {
+            this.volume -= lastVolume;
+            this.priceVolume -= lastPriceVolume;
+            add(open, high, low, close, volume);
+        }
+
+        @Override
+        public int lines() {
+            return 1;
+        }
+
+        @Override
+        public double value(int line) {
+            return volume > 0 ? priceVolume / volume : Double.NaN;
+        }
+
+        @Override
+        public String lineName(int line) {
+            return "VWAP";
+        }
+
+        @Override
+        public Indicator newInstance() {
+            return new Vwap();
+        }
+    }
+}
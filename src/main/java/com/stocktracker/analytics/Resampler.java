@@ -0,0 +1,141 @@
+package com.stocktracker.analytics;
+
+import com.stocktracker.api.MarketCalendar;
+import com.stocktracker.models.PriceSeries;
+
+// Builds coarser bars from 1-minute bars in one streaming pass: first open, highest high,
+// lowest low, last close, summed volume. Buckets are aligned to the session open (9:30,
+// 9:35, ... for 5m; 9:30, 10:30, ... for 1h) and never straddle a session boundary, so the
+// last hourly bar of the day is 15:30-16:00 and pre/post-market minutes form bars of their
+// own. Bars are labelled with the start of their bucket, like the API's intraday bars;
+// daily bars are labelled with midnight, like TIME_SERIES_DAILY.
+//
+// Times follow StockData: exchange-local wall clock as epoch seconds, so the day and the
+// time of day fall straight out of the number with no time-zone lookups.
+public final class Resampler {
+    private static final long DAY = 86_400;
+    private static final long OPEN = MarketCalendar.SESSION_OPEN.toSecondOfDay();
+    private static final long CLOSE = MarketCalendar.SESSION_CLOSE.toSecondOfDay();
+
+    public enum Interval {
+        ONE_MINUTE(60), FIVE_MINUTES(300), FIFTEEN_MINUTES(900), ONE_HOUR(3_600), ONE_DAY(DAY);
+
+        private final long seconds;
+
+        Interval(long seconds) {
+            this.seconds = seconds;
+        }
+
+        public long getSeconds() {
+            return seconds;
+        }
+    }
+
+    // Which minutes go into the bars
+    public enum Session {
+        // 9:30-16:00 only; daily bars then match the exchange's official daily bars
+        REGULAR,
+        // Pre- and post-market minutes too, as separate bars (folded into the day for ONE_DAY)
+        EXTENDED
+    }
+
+    private final Interval interval;
+    private final Session session;
+    private final PriceSeries bars;
+    private long bucket = Long.MIN_VALUE;
+    private long lastInput = Long.MIN_VALUE;
+
+    // Running aggregate of the newest (possibly still forming) bar
+    private double open, high, low, close;
+    private long volume;
+
+    public Resampler(Interval interval, Session session) {
+        this(interval, session, 64);
+    }
+
+    public Resampler(Interval interval, Session session, int capacity) {
+        this.interval = interval;
+        this.session = session;
+        this.bars = new PriceSeries(Math.max(capacity, 1));
+    }
+
+    // Resample a whole 1-minute series, oldest first
+    public static PriceSeries resample(PriceSeries minutes, Interval interval, Session session) {
+        long span = Math.max(1, interval.seconds / 60);
+        Resampler resampler = new Resampler(interval, session, (int) (minutes.size() / span) + 1);
+        PriceSeries.Cursor cursor = minutes.cursor();
+        while (cursor.next()) {
+            resampler.add(cursor.getTime(), cursor.getOpen(), cursor.getHigh(), cursor.getLow(),
+                    cursor.getClose(), cursor.getVolume());
+        }
+        return resampler.bars();
+    }
+
+    // Feed the next 1-minute bar (strictly after the previous one). Returns true when it
+    // started a new output bar, false when it was folded into the current one or skipped
+    // because it falls outside the session.
+    public boolean add(long epochSecond, double open, double high, double low, double close, long volume) {
+        if (epochSecond <= lastInput) {
+            throw new IllegalArgumentException("Bars must be added in time order: " + epochSecond
+                    + " after " + lastInput);
+        }
+        lastInput = epochSecond;
+        long key = bucketOf(epochSecond);
+        if (key == Long.MIN_VALUE) {
+            return false;
+        }
+
+        if (key != bucket) {
+            bucket = key;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            this.volume = volume;
+            bars.append(key, open, high, low, close, volume);
+            return true;
+        }
+        this.high = Math.max(this.high, high);
+        this.low = Math.min(this.low, low);
+        this.close = close;
+        this.volume += volume;
+        bars.replaceLast(this.open, this.high, this.low, this.close, this.volume);
+        return false;
+    }
+
+    // Output bars so far, oldest first; the newest one keeps changing until its bucket ends
+    public PriceSeries bars() {
+        return bars;
+    }
+
+    public Interval getInterval() {
+        return interval;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public void reset() {
+        bars.clear();
+        bucket = Long.MIN_VALUE;
+        lastInput = Long.MIN_VALUE;
+    }
+
+    // Start of the bucket the minute belongs to, or Long.MIN_VALUE if the session excludes it.
+    // Each part of the day is bucketed from its own anchor: pre-market counts back from the
+    // open, the regular session counts on from the open and post-market from the close.
+    private long bucketOf(long epochSecond) {
+        long day = Math.floorDiv(epochSecond, DAY) * DAY;
+        long time = epochSecond - day;
+        boolean regular = time >= OPEN && time < CLOSE;
+        if (!regular && session == Session.REGULAR) {
+            return Long.MIN_VALUE;
+        }
+        if (interval == Interval.ONE_DAY) {
+            return day;
+        }
+        long anchor = time >= CLOSE ? CLOSE : OPEN;
+        return day + anchor + Math.floorDiv(time - anchor, interval.seconds) * interval.seconds;
+    }
+}
@@ -1,44 +1,466 @@
 
 package com.stocktracker.api;
 
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.PriceSeries;
 import com.stocktracker.models.StockData;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
 import org.json.JSONObject;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.LinkedList;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class ApiClient {
     private static final String API_KEY = "demo"; // Using demo key for testing
-    private static final OkHttpClient client = new OkHttpClient();
     private static final int MAX_CALLS_PER_MINUTE = 5;
-    private static final LinkedList<Long> callTimestamps = new LinkedList<>();
+    // Bars kept from a series response unless the caller asks for more
+    public static final int DEFAULT_BARS = 30;
+    // How long a blocking call may queue for the rate limit before giving up
+    private static final Duration RATE_LIMIT_WAIT = Duration.ofMinutes(2);
+    private static final RateLimiter rateLimiter =
+            new RateLimiter("alphavantage", MAX_CALLS_PER_MINUTE, Duration.ofMinutes(1));
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+    // Declared before responseCache, whose initializer counts into it
+    private static final Counter CACHE_OPEN_FAILURES = Metrics.counter("api.cache.openFailures");
+    // Freshness of a daily response whose newest bar is not the last closed session
+    private static final Duration INCOMPLETE_SERIES_TTL = Duration.ofMinutes(15);
+    private static volatile ResponseCache responseCache = openDefaultCache();
+
+    private static final Counter HTTP_ERRORS = Metrics.counter("api.http.errors");
+    private static final Counter RATE_LIMITED = Metrics.counter("api.rateLimited");
+
+    static {
+        Metrics.gauge("api.cache.hitRatio", () -> {
+            ResponseCache.Stats stats = cacheStats();
+            return stats == null ? Double.NaN : stats.hitRatio();
+        });
+    }
+
+    private static volatile Config config = new Config();
+    private static volatile OkHttpClient client = buildClient(config);
+
+    // Replace the HTTP client with one built from the given settings
+    public static synchronized void configure(Config newConfig) {
+        OkHttpClient previous = client;
+        config = newConfig;
+        client = buildClient(newConfig);
+        // In-flight calls finish on the old dispatcher; idle sockets can go now
+        previous.connectionPool().evictAll();
+    }
+
+    private static OkHttpClient buildClient(Config config) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.maxRequests);
+        dispatcher.setMaxRequestsPerHost(config.maxRequestsPerHost);
+
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(config.maxIdleConnections,
+                        config.keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .connectTimeout(config.connectTimeout)
+                .readTimeout(config.readTimeout)
+                .callTimeout(config.callTimeout)
+                .retryOnConnectionFailure(true)
+                .addInterceptor(ApiClient::timeExchange)
+                .build();
+    }
+
+    // Time every HTTP exchange up to the response headers, per API function. Bodies are
+    // streamed into the parser afterwards, so reading them shows up under api.parse.
+    private static Response timeExchange(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        String function = request.url().queryParameter("function");
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(request);
+            Metrics.histogram("api.http." + (function == null ? "other" : function.toLowerCase()))
+                    .recordSince(start);
+            if (!response.isSuccessful() && response.code() != HTTP_NOT_MODIFIED) {
+                HTTP_ERRORS.increment();
+            }
+            return response;
+        } catch (IOException e) {
+            HTTP_ERRORS.increment();
+            throw e;
+        }
+    }
 
     // Historical data endpoint
     public static String getDailySeries(String symbol) throws IOException {
-        checkRateLimit();
-        String url = String.format(
-                "https://www.alphavantage.co/query?function=TIME_SERIES_DAILY&symbol=%s&outputsize=compact&apikey=%s",
-                symbol, API_KEY
-        );
+        return getDailySeries(symbol, RateLimiter.Priority.INTERACTIVE);
+    }
+
+    public static String getDailySeries(String symbol, RateLimiter.Priority priority) throws IOException {
+        String url = dailySeriesUrl(symbol);
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            try (ResponseCache.Entry entry = loadSeries(cache, url, priority)) {
+                return entry.readString();
+            }
+        }
+
+        checkRateLimit(priority);
+        Request request = new Request.Builder().url(url).build();
+        try (Response response = client.newCall(request).execute()) {
+            validateResponse(response);
+            return response.body().string();
+        }
+    }
+
+    // Fetch and parse in one pass, streaming bars straight off the socket (or the cache file).
+    // Only the first maxBars (most recent) bars are parsed.
+    public static List<StockData> fetchDailySeries(String symbol, int maxBars) throws IOException {
+        return fetchDailySeries(symbol, maxBars, RateLimiter.Priority.INTERACTIVE);
+    }
+
+    public static List<StockData> fetchDailySeries(String symbol, int maxBars, RateLimiter.Priority priority)
+            throws IOException {
+        return fetchDailySeries(symbol, maxBars, OutputSize.forBars(maxBars), priority);
+    }
+
+    public static List<StockData> fetchDailySeries(String symbol, int maxBars, OutputSize size,
+                                                   RateLimiter.Priority priority) throws IOException {
+        String url = dailySeriesUrl(symbol, size);
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            try (ResponseCache.Entry entry = loadSeries(cache, url, priority)) {
+                return parseEntry(entry, maxBars);
+            }
+        }
+
+        checkRateLimit(priority);
+        Request request = new Request.Builder().url(url).build();
+        try (Response response = client.newCall(request).execute()) {
+            validateResponse(response);
+            return parseDailySeries(response.body().source(), maxBars);
+        }
+    }
+
+    // Columnar variant of fetchDailySeries: the same bars, oldest first, without a StockData per bar
+    public static PriceSeries fetchDailyPrices(String symbol, int maxBars, RateLimiter.Priority priority)
+            throws IOException {
+        return fetchDailyPrices(symbol, maxBars, OutputSize.forBars(maxBars), priority);
+    }
+
+    public static PriceSeries fetchDailyPrices(String symbol, int maxBars, OutputSize size,
+                                               RateLimiter.Priority priority) throws IOException {
+        String url = dailySeriesUrl(symbol, size);
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            try (ResponseCache.Entry entry = loadSeries(cache, url, priority);
+                 BufferedSource source = entry.open()) {
+                return parsePriceSeries(source, maxBars);
+            }
+        }
+
+        checkRateLimit(priority);
+        Request request = new Request.Builder().url(url).build();
+        try (Response response = client.newCall(request).execute()) {
+            validateResponse(response);
+            return parsePriceSeries(response.body().source(), maxBars);
+        }
+    }
+
+    // The most recent 1-minute bars, pre- and post-market included, oldest first. Compact
+    // covers the last 100 minutes, full the trailing 30 days or so. Coarser intervals are
+    // derived from these with analytics.Resampler rather than requested separately.
+    public static PriceSeries fetchIntradayPrices(String symbol, int maxBars, OutputSize size,
+                                                  RateLimiter.Priority priority) throws IOException {
+        return fetchIntradayPrices(intradaySeriesUrl(symbol, size, null), maxBars, priority);
+    }
+
+    // Every 1-minute bar of one calendar month, for backfilling history
+    public static PriceSeries fetchIntradayPrices(String symbol, YearMonth month, RateLimiter.Priority priority)
+            throws IOException {
+        return fetchIntradayPrices(intradaySeriesUrl(symbol, OutputSize.FULL, month), Integer.MAX_VALUE, priority);
+    }
+
+    private static PriceSeries fetchIntradayPrices(String url, int maxBars, RateLimiter.Priority priority)
+            throws IOException {
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            // A new bar completes every minute while the market trades, so that is how long
+            // a response stays fresh
+            Instant expiresAt = MarketCalendar.nextMinuteBarClose(Instant.now());
+            try (ResponseCache.Entry entry = loadSeries(cache, url, priority, expiresAt);
+                 BufferedSource source = entry.open()) {
+                return parsePriceSeries(source, maxBars);
+            }
+        }
 
-        System.out.println("Making API request to: " + url);
+        checkRateLimit(priority);
         Request request = new Request.Builder().url(url).build();
         try (Response response = client.newCall(request).execute()) {
             validateResponse(response);
-            String responseBody = response.body().string();
-            System.out.println("API Response received, length: " + responseBody.length());
-            return responseBody;
+            return parsePriceSeries(response.body().source(), maxBars);
         }
     }
 
+    // Non-blocking variant of getDailySeries. The request is queued until the rate limit
+    // allows it and then runs on the OkHttp dispatcher.
+    public static CompletableFuture<String> getDailySeriesAsync(String symbol, RateLimiter.Priority priority) {
+        return seriesAsync(dailySeriesUrl(symbol), priority,
+                ResponseCache.Entry::readString, ResponseBody::string);
+    }
+
+    public static CompletableFuture<List<StockData>> fetchDailySeriesAsync(String symbol,
+                                                                          RateLimiter.Priority priority) {
+        return fetchDailySeriesAsync(symbol, DEFAULT_BARS, priority);
+    }
+
+    public static CompletableFuture<List<StockData>> fetchDailySeriesAsync(String symbol, int maxBars,
+                                                                          RateLimiter.Priority priority) {
+        return seriesAsync(dailySeriesUrl(symbol, OutputSize.forBars(maxBars)), priority,
+                entry -> parseEntry(entry, maxBars),
+                body -> parseDailySeries(body.source(), maxBars));
+    }
+
+    public static CompletableFuture<PriceSeries> fetchDailyPricesAsync(String symbol, int maxBars,
+                                                                     RateLimiter.Priority priority) {
+        return seriesAsync(dailySeriesUrl(symbol, OutputSize.forBars(maxBars)), priority,
+                entry -> {
+                    try (BufferedSource source = entry.open()) {
+                        return parsePriceSeries(source, maxBars);
+                    }
+                },
+                body -> parsePriceSeries(body.source(), maxBars));
+    }
+
+    private static <T> CompletableFuture<T> seriesAsync(String url, RateLimiter.Priority priority,
+                                                        EntryReader<T> fromCache, BodyReader<T> fromNetwork) {
+        ResponseCache cache = responseCache;
+        if (cache == null) {
+            Request request = new Request.Builder().url(url).build();
+            return rateLimiter.acquireAsync(priority).thenCompose(ignored -> enqueue(request, response -> {
+                validateResponse(response);
+                return fromNetwork.read(response.body());
+            }));
+        }
+
+        String key = cacheKey(url);
+        ResponseCache.Entry fresh = cache.getFresh(key, Instant.now());
+        if (fresh != null) {
+            try (fresh) {
+                return CompletableFuture.completedFuture(fromCache.read(fresh));
+            } catch (IOException | RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return rateLimiter.acquireAsync(priority).thenCompose(ignored -> {
+            ResponseCache.Entry stale = cache.get(key);
+            return enqueue(seriesRequest(url, stale), response -> {
+                try (ResponseCache.Entry stored = storeSeries(cache, key, stale, response)) {
+                    return fromCache.read(stored);
+                }
+            }).whenComplete((result, error) -> {
+                if (stale != null) {
+                    stale.close();
+                }
+            });
+        });
+    }
+
+    // Serve from the cache while fresh; otherwise spend a rate-limit token on a conditional
+    // request and refresh the entry from the response. The entry must be closed after use.
+    private static ResponseCache.Entry loadSeries(ResponseCache cache, String url, RateLimiter.Priority priority)
+            throws IOException {
+        return loadSeries(cache, url, priority, null);
+    }
+
+    // expiresAt null uses the daily expiry of storeSeries
+    private static ResponseCache.Entry loadSeries(ResponseCache cache, String url, RateLimiter.Priority priority,
+                                                  Instant expiresAt) throws IOException {
+        String key = cacheKey(url);
+        ResponseCache.Entry fresh = cache.getFresh(key, Instant.now());
+        if (fresh != null) {
+            return fresh;
+        }
+
+        checkRateLimit(priority);
+        try (ResponseCache.Entry stale = cache.get(key);
+             Response response = client.newCall(seriesRequest(url, stale)).execute()) {
+            return storeSeries(cache, key, stale, response, expiresAt);
+        }
+    }
+
+    private static Request seriesRequest(String url, ResponseCache.Entry stale) {
+        Request.Builder builder = new Request.Builder().url(url);
+        if (stale != null && stale.getEtag() != null) {
+            builder.header("If-None-Match", stale.getEtag());
+        }
+        if (stale != null && stale.getLastModified() != null) {
+            builder.header("If-Modified-Since", stale.getLastModified());
+        }
+        return builder.build();
+    }
+
+    // expiresAt null means a daily series, fresh according to dailyExpiry
+    private static ResponseCache.Entry storeSeries(ResponseCache cache, String key, ResponseCache.Entry stale,
+                                                   Response response) throws IOException {
+        return storeSeries(cache, key, stale, response, null);
+    }
+
+    private static ResponseCache.Entry storeSeries(ResponseCache cache, String key, ResponseCache.Entry stale,
+                                                   Response response, Instant expiresAt) throws IOException {
+        if (response.code() == HTTP_NOT_MODIFIED && stale != null) {
+            return cache.revalidated(stale, expiresAt != null ? expiresAt : dailyExpiry(parseEntry(stale, 1)));
+        }
+        validateResponse(response);
+        // Rate-limit notes and error messages arrive with HTTP 200; never cache them
+        return cache.put(key, response.body().source(),
+                response.header("ETag"), response.header("Last-Modified"),
+                body -> {
+                    List<StockData> newest = parseDailySeries(body, 1);
+                    return expiresAt != null ? expiresAt : dailyExpiry(newest);
+                });
+    }
+
+    // Daily bars only change when a session closes, so a response that already holds the
+    // last closed session stays fresh until the next close. One that lags behind (the
+    // provider has not published the close yet) or carries a session still in progress
+    // is only kept briefly.
+    private static Instant dailyExpiry(List<StockData> newest) {
+        Instant now = Instant.now();
+        if (!newest.isEmpty() && newest.get(0).getTimestamp().toLocalDate()
+                .equals(MarketCalendar.lastCompletedSession(now))) {
+            return MarketCalendar.nextSessionClose(now);
+        }
+        return now.plus(INCOMPLETE_SERIES_TTL);
+    }
+
+    private static List<StockData> parseEntry(ResponseCache.Entry entry, int maxBars) throws IOException {
+        try (BufferedSource source = entry.open()) {
+            return parseDailySeries(source, maxBars);
+        }
+    }
+
+    // The API key is not part of the cache identity
+    private static String cacheKey(String url) {
+        return url.replaceAll("[&?]apikey=[^&]*", "");
+    }
+
+    // Use a different cache (e.g. for tests or a shared ingest box); null disables caching
+    public static void setResponseCache(ResponseCache cache) {
+        responseCache = cache;
+    }
+
+    public static ResponseCache.Stats cacheStats() {
+        ResponseCache cache = responseCache;
+        return cache == null ? null : cache.stats();
+    }
+
+    private static ResponseCache openDefaultCache() {
+        Path directory = Path.of(System.getProperty("stocktracker.cache.dir", "http-cache"));
+        long maxBytes = Long.getLong("stocktracker.cache.maxBytes", 64L * 1024 * 1024);
+        try {
+            return new ResponseCache(directory, maxBytes);
+        } catch (IOException e) {
+            // Run uncached rather than not at all
+            CACHE_OPEN_FAILURES.increment();
+            return null;
+        }
+    }
+
+    // Fetch a whole watchlist concurrently. Each symbol gets its own future so one failure
+    // doesn't hide the others; combine with CompletableFuture.allOf to wait for all of them.
+    public static Map<String, CompletableFuture<List<StockData>>> fetchWatchlist(Collection<String> symbols) {
+        Map<String, CompletableFuture<List<StockData>>> results = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            results.computeIfAbsent(symbol,
+                    s -> fetchDailySeriesAsync(s, RateLimiter.Priority.BACKGROUND));
+        }
+        return results;
+    }
+
+    private interface BodyReader<T> {
+        T read(ResponseBody body) throws IOException;
+    }
+
+    private interface EntryReader<T> {
+        T read(ResponseCache.Entry entry) throws IOException;
+    }
+
+    private interface ResponseReader<T> {
+        T read(Response response) throws IOException;
+    }
+
+    private static <T> CompletableFuture<T> enqueue(Request request, ResponseReader<T> reader) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(reader.read(response));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        // Cancelling the future cancels the HTTP call
+        future.whenComplete((body, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    private static String dailySeriesUrl(String symbol) {
+        return dailySeriesUrl(symbol, OutputSize.COMPACT);
+    }
+
+    private static String dailySeriesUrl(String symbol, OutputSize size) {
+        return String.format(
+                "https://www.alphavantage.co/query?function=TIME_SERIES_DAILY&symbol=%s&outputsize=%s&apikey=%s",
+                symbol, size.parameter, API_KEY
+        );
+    }
+
+    // month null asks for the most recent bars
+    private static String intradaySeriesUrl(String symbol, OutputSize size, YearMonth month) {
+        return String.format(
+                "https://www.alphavantage.co/query?function=TIME_SERIES_INTRADAY&symbol=%s&interval=1min"
+                        + "&outputsize=%s%s&apikey=%s",
+                symbol, size.parameter, month == null ? "" : "&month=" + month, API_KEY
+        );
+    }
+
     // Real-time quote endpoint
     public static StockData getGlobalQuote(String symbol) throws IOException {
-        checkRateLimit();
+        return getGlobalQuote(symbol, RateLimiter.Priority.INTERACTIVE);
+    }
+
+    public static StockData getGlobalQuote(String symbol, RateLimiter.Priority priority) throws IOException {
+        checkRateLimit(priority);
         String url = String.format(
                 "https://www.alphavantage.co/query?function=GLOBAL_QUOTE&symbol=%s&apikey=%s",
                 symbol, API_KEY
@@ -58,94 +480,69 @@ public class ApiClient {
         }
     }
 
-    // Parsing logic for daily series
+    // Parsing logic for daily series: the most recent DEFAULT_BARS bars, newest first
     public static List<StockData> parseDailySeries(String jsonResponse) {
-        JSONObject json = new JSONObject(jsonResponse);
-        checkForApiErrors(json);
-
-        // Temporary debug to see what we're getting
-        System.out.println("API Response keys: " + json.keySet());
-        if (json.has("Note")) {
-            System.out.println("API Note: " + json.getString("Note"));
-        }
-
-        // Check for different possible response formats
-        final JSONObject timeSeries;
-        if (json.has("Time Series (Daily)")) {
-            timeSeries = json.getJSONObject("Time Series (Daily)");
-        } else if (json.has("Time Series (1min)")) {
-            timeSeries = json.getJSONObject("Time Series (1min)");
-        } else if (json.has("Time Series (5min)")) {
-            timeSeries = json.getJSONObject("Time Series (5min)");
-        } else if (json.has("Time Series (15min)")) {
-            timeSeries = json.getJSONObject("Time Series (15min)");
-        } else if (json.has("Time Series (30min)")) {
-            timeSeries = json.getJSONObject("Time Series (30min)");
-        } else if (json.has("Time Series (60min)")) {
-            timeSeries = json.getJSONObject("Time Series (60min)");
-        } else {
-            // If no time series found, check if it's a quote response
-            if (json.has("Global Quote")) {
-                throw new RuntimeException("Received quote data instead of time series. Please use a different endpoint.");
-            }
-            
-            System.out.println("Full API Response: " + json.toString(2));
-            throw new RuntimeException("No time series data found in API response. Available keys: " + json.keySet());
+        try {
+            return parseDailySeries(new Buffer().writeUtf8(jsonResponse), DEFAULT_BARS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        return timeSeries.keySet().stream()
-                .sorted((d1, d2) -> d2.compareTo(d1)) // Most recent first
-                .limit(30)
-                .map(date -> createStockData(date, timeSeries.getJSONObject(date)))
-                .collect(Collectors.toList());
+    // Streaming parse of any "Time Series (...)" response, newest first
+    public static List<StockData> parseDailySeries(BufferedSource source, int maxBars) throws IOException {
+        if (maxBars < 1) {
+            throw new IllegalArgumentException("maxBars must be positive: " + maxBars);
+        }
+        return new TimeSeriesParser(source).parse(maxBars);
     }
 
-    // Rate limiting control methods
-    public static synchronized boolean isRateLimited() {
-        purgeOldTimestamps();
-        return callTimestamps.size() >= MAX_CALLS_PER_MINUTE;
+    // Streaming parse of any "Time Series (...)" response into columns, oldest first
+    public static PriceSeries parsePriceSeries(BufferedSource source, int maxBars) throws IOException {
+        if (maxBars < 1) {
+            throw new IllegalArgumentException("maxBars must be positive: " + maxBars);
+        }
+        return new TimeSeriesParser(source).parsePrices(maxBars);
     }
 
-    public static synchronized void startRateLimitTimer() {
-        callTimestamps.add(System.currentTimeMillis());
+    // Rate limiting control methods
+    public static boolean isRateLimited() {
+        return rateLimiter.availablePermits() == 0;
     }
 
-    private static void checkRateLimit() throws IOException {
-        if (isRateLimited()) {
-            throw new IOException("API rate limit exceeded (5 calls/minute). Please wait.");
-        }
-        startRateLimitTimer();
+    // The API answered with a rate limit note even though we stayed within our budget
+    // (e.g. another client shares the key); stop sending until the bucket refills.
+    public static void reportRateLimited() {
+        RATE_LIMITED.increment();
+        rateLimiter.exhaust();
     }
 
-    private static void purgeOldTimestamps() {
-        long cutoff = System.currentTimeMillis() - 60_000;
-        callTimestamps.removeIf(ts -> ts < cutoff);
+    // The API budget shared by every caller, e.g. for pacing background refreshes
+    public static int getCallsPerMinute() {
+        return MAX_CALLS_PER_MINUTE;
     }
 
-    private static void validateResponse(Response response) throws IOException {
-        if (!response.isSuccessful()) {
-            throw new IOException("HTTP Error: " + response.code());
-        }
+    public static RateLimiter.Stats rateLimiterStats() {
+        return rateLimiter.stats();
     }
 
-    private static void checkForApiErrors(JSONObject json) {
-        if (json.has("Note")) {
-            throw new RuntimeException("API Rate Limit: " + json.getString("Note"));
-        }
-        if (json.has("Error Message")) {
-            throw new RuntimeException("API Error: " + json.getString("Error Message"));
+    // Wait for a token instead of failing; only give up if the queue is badly backed up
+    private static void checkRateLimit(RateLimiter.Priority priority) throws IOException {
+        try {
+            if (!rateLimiter.tryAcquire(priority, RATE_LIMIT_WAIT)) {
+                throw new IOException("API rate limit exceeded (5 calls/minute): timed out after "
+                        + RATE_LIMIT_WAIT.toSeconds() + "s in queue");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the API rate limit");
         }
     }
 
-    private static StockData createStockData(String date, JSONObject entry) {
-        return new StockData(
-                LocalDateTime.parse(date + "T00:00:00"),
-                entry.getDouble("1. open"),
-                entry.getDouble("2. high"),
-                entry.getDouble("3. low"),
-                entry.getDouble("4. close"),
-                entry.getLong("5. volume")
-        );
+    private static void validateResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("HTTP Error: " + response.code());
+        }
     }
 
     private static StockData parseQuote(JSONObject quote) {
@@ -160,8 +557,12 @@ public class ApiClient {
             }
         }
 
+        // The quote describes the session's bar so far; date it like the daily bars
+        LocalDateTime timestamp = quote.has("07. latest trading day")
+                ? TimeSeriesParser.parseTimestamp(quote.getString("07. latest trading day"))
+                : LocalDateTime.now();
         return new StockData(
-                LocalDateTime.now(),
+                timestamp,
                 quote.getDouble("02. open"),
                 quote.getDouble("03. high"),
                 quote.getDouble("04. low"),
@@ -169,4 +570,72 @@ public class ApiClient {
                 quote.getLong("06. volume")
         );
     }
+
+    // How much history a series request returns
+    public enum OutputSize {
+        // The latest COMPACT_BARS bars
+        COMPACT("compact"),
+        // The full history (20+ years for daily bars, the trailing month for intraday)
+        FULL("full");
+
+        public static final int COMPACT_BARS = 100;
+
+        private final String parameter;
+
+        OutputSize(String parameter) {
+            this.parameter = parameter;
+        }
+
+        // Smallest response that contains the given number of most recent bars
+        public static OutputSize forBars(int bars) {
+            return bars <= COMPACT_BARS ? COMPACT : FULL;
+        }
+    }
+
+    // HTTP client tuning. Defaults suit a single API host and a few dozen concurrent calls.
+    public static final class Config {
+        private int maxRequests = 32;
+        private int maxRequestsPerHost = 8;
+        private int maxIdleConnections = 8;
+        private Duration keepAlive = Duration.ofMinutes(5);
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration readTimeout = Duration.ofSeconds(30);
+        private Duration callTimeout = Duration.ofSeconds(60);
+
+        public Config maxRequests(int maxRequests) {
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        public Config maxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        public Config maxIdleConnections(int maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        public Config keepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        public Config connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Config readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        // Upper bound on a whole call, including redirects and reading the body
+        public Config callTimeout(Duration callTimeout) {
+            this.callTimeout = callTimeout;
+            return this;
+        }
+    }
 }
\ No newline at end of file
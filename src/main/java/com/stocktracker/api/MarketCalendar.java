@@ -0,0 +1,159 @@
+package com.stocktracker.api;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+// US equity session calendar (NYSE/Nasdaq regular hours, full-day holidays).
+// Early closes are treated as full sessions; that only makes cached data go stale
+// a few hours late on three days a year.
+public final class MarketCalendar {
+    public static final ZoneId EXCHANGE_ZONE = ZoneId.of("America/New_York");
+    public static final LocalTime SESSION_OPEN = LocalTime.of(9, 30);
+    public static final LocalTime SESSION_CLOSE = LocalTime.of(16, 0);
+    // Pre- and post-market trading, as covered by the intraday endpoint
+    public static final LocalTime EXTENDED_OPEN = LocalTime.of(4, 0);
+    public static final LocalTime EXTENDED_CLOSE = LocalTime.of(20, 0);
+
+    private MarketCalendar() {
+    }
+
+    public static boolean isTradingDay(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY && !isHoliday(date);
+    }
+
+    // Close of the first session ending strictly after the given instant
+    public static Instant nextSessionClose(Instant now) {
+        ZonedDateTime local = now.atZone(EXCHANGE_ZONE);
+        LocalDate date = local.toLocalDate();
+        if (!isTradingDay(date) || !local.toLocalTime().isBefore(SESSION_CLOSE)) {
+            date = nextTradingDay(date);
+        }
+        return date.atTime(SESSION_CLOSE).atZone(EXCHANGE_ZONE).toInstant();
+    }
+
+    // When the minute bar forming at the given instant completes; outside extended hours,
+    // when the first minute of the next extended session does
+    public static Instant nextMinuteBarClose(Instant now) {
+        ZonedDateTime local = now.atZone(EXCHANGE_ZONE);
+        LocalDate date = local.toLocalDate();
+        LocalTime time = local.toLocalTime();
+        if (isTradingDay(date) && !time.isBefore(EXTENDED_OPEN) && time.isBefore(EXTENDED_CLOSE)) {
+            return local.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1).toInstant();
+        }
+        if (!isTradingDay(date) || !time.isBefore(EXTENDED_CLOSE)) {
+            date = nextTradingDay(date);
+        }
+        return date.atTime(EXTENDED_OPEN).plusMinutes(1).atZone(EXCHANGE_ZONE).toInstant();
+    }
+
+    // Exchange-local start of the newest minute bar that has completed, extended hours included
+    public static LocalDateTime lastCompletedMinuteBar(Instant now) {
+        ZonedDateTime local = now.atZone(EXCHANGE_ZONE);
+        LocalDate date = local.toLocalDate();
+        LocalTime time = local.toLocalTime();
+        if (isTradingDay(date) && !time.isBefore(EXTENDED_OPEN.plusMinutes(1)) && time.isBefore(EXTENDED_CLOSE)) {
+            return local.toLocalDateTime().truncatedTo(ChronoUnit.MINUTES).minusMinutes(1);
+        }
+        if (!isTradingDay(date) || time.isBefore(EXTENDED_CLOSE)) {
+            date = previousTradingDay(date);
+        }
+        return date.atTime(EXTENDED_CLOSE).minusMinutes(1);
+    }
+
+    // Date of the most recent session that has already closed
+    public static LocalDate lastCompletedSession(Instant now) {
+        ZonedDateTime local = now.atZone(EXCHANGE_ZONE);
+        LocalDate date = local.toLocalDate();
+        if (!isTradingDay(date) || local.toLocalTime().isBefore(SESSION_CLOSE)) {
+            date = previousTradingDay(date);
+        }
+        return date;
+    }
+
+    public static LocalDate nextTradingDay(LocalDate date) {
+        LocalDate next = date.plusDays(1);
+        while (!isTradingDay(next)) {
+            next = next.plusDays(1);
+        }
+        return next;
+    }
+
+    public static LocalDate previousTradingDay(LocalDate date) {
+        LocalDate previous = date.minusDays(1);
+        while (!isTradingDay(previous)) {
+            previous = previous.minusDays(1);
+        }
+        return previous;
+    }
+
+    // Number of trading days in (from, to]
+    public static int tradingDaysBetween(LocalDate from, LocalDate to) {
+        int count = 0;
+        for (LocalDate date = from.plusDays(1); !date.isAfter(to); date = date.plusDays(1)) {
+            if (isTradingDay(date)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static boolean isHoliday(LocalDate date) {
+        int year = date.getYear();
+        return date.equals(observed(LocalDate.of(year, Month.JANUARY, 1)))
+                || date.equals(nthWeekday(year, Month.JANUARY, DayOfWeek.MONDAY, 3))     // MLK Day
+                || date.equals(nthWeekday(year, Month.FEBRUARY, DayOfWeek.MONDAY, 3))    // Presidents' Day
+                || date.equals(easterSunday(year).minusDays(2))                          // Good Friday
+                || date.equals(LocalDate.of(year, Month.MAY, 31)
+                        .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)))     // Memorial Day
+                || (year >= 2022 && date.equals(observed(LocalDate.of(year, Month.JUNE, 19))))
+                || date.equals(observed(LocalDate.of(year, Month.JULY, 4)))
+                || date.equals(nthWeekday(year, Month.SEPTEMBER, DayOfWeek.MONDAY, 1))   // Labor Day
+                || date.equals(nthWeekday(year, Month.NOVEMBER, DayOfWeek.THURSDAY, 4))  // Thanksgiving
+                || date.equals(observed(LocalDate.of(year, Month.DECEMBER, 25)));
+    }
+
+    // Saturday holidays move to Friday, Sunday holidays to Monday (except New Year's on Saturday)
+    private static LocalDate observed(LocalDate holiday) {
+        switch (holiday.getDayOfWeek()) {
+            case SATURDAY:
+                return holiday.getMonth() == Month.JANUARY && holiday.getDayOfMonth() == 1
+                        ? holiday : holiday.minusDays(1);
+            case SUNDAY:
+                return holiday.plusDays(1);
+            default:
+                return holiday;
+        }
+    }
+
+    private static LocalDate nthWeekday(int year, Month month, DayOfWeek day, int n) {
+        return LocalDate.of(year, month, 1).with(TemporalAdjusters.dayOfWeekInMonth(n, day));
+    }
+
+    // Anonymous Gregorian algorithm
+    private static LocalDate easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = ((h + l - 7 * m + 114) % 31) + 1;
+        return LocalDate.of(year, month, day);
+    }
+}
@@ -0,0 +1,283 @@
+package com.stocktracker.api;
+
+import com.stocktracker.metrics.LatencyHistogram;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.util.DaemonThreads;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Token bucket implemented as a generic cell rate algorithm: the whole bucket state is a
+// single "theoretical arrival time", so the uncontended path is one CAS. Callers that have
+// to wait are queued by priority and granted tokens by a scheduler thread as they refill.
+public class RateLimiter {
+    public enum Priority {
+        // Someone is looking at the screen waiting for this call
+        INTERACTIVE,
+        // Refreshes and prefetches that can wait behind interactive calls
+        BACKGROUND
+    }
+
+    private final String name;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private volatile int waiterCount;
+    private long waiterSequence;
+    private long nextDrainAt = Long.MAX_VALUE;
+    private final ScheduledExecutorService scheduler;
+
+    // Metrics
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private volatile long maxWaitNanos;
+    private final LatencyHistogram waitLatency;
+
+    // permits tokens per period, with a bucket that holds at most permits tokens
+    public RateLimiter(String name, int permits, Duration period) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Permits must be positive: " + permits);
+        }
+        this.name = name;
+        this.intervalNanos = period.toNanos() / permits;
+        this.burstNanos = intervalNanos * permits;
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+        this.waitLatency = Metrics.histogram("ratelimit." + name + ".wait");
+        Metrics.gauge("ratelimit." + name + ".queued", () -> waiterCount);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(DaemonThreads.named(name + "-rate-limiter"));
+    }
+
+    // Take a token if one is available right now and nobody is queued ahead
+    public boolean tryAcquire() {
+        if (waiterCount == 0 && take(System.nanoTime())) {
+            granted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    // Wait up to timeout for a token; returns false if none could be granted in time
+    public boolean tryAcquire(Priority priority, Duration timeout) throws InterruptedException {
+        CompletableFuture<Void> ticket = acquireAsync(priority);
+        try {
+            ticket.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            if (ticket.cancel(false)) {
+                rejected.increment();
+                return false;
+            }
+            return true; // Granted just as we gave up
+        } catch (InterruptedException e) {
+            ticket.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Completes once a token has been granted. Cancelling the future gives up the place in line.
+    public CompletableFuture<Void> acquireAsync(Priority priority) {
+        if (waiterCount == 0 && take(System.nanoTime())) {
+            granted.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        Waiter waiter;
+        lock.lock();
+        try {
+            waiter = new Waiter(priority, waiterSequence++);
+            waiters.add(waiter);
+            waiterCount = waiters.size();
+        } finally {
+            lock.unlock();
+        }
+        delayed.increment();
+        drainWaiters();
+        return waiter.ticket;
+    }
+
+    // Tokens that could be taken right now
+    public int availablePermits() {
+        long now = System.nanoTime();
+        long backlog = Math.max(theoreticalArrival.get(), now) - now;
+        return (int) Math.max(0, (burstNanos - backlog) / intervalNanos);
+    }
+
+    // The provider told us we are over the limit: empty the bucket so the next token
+    // only arrives after a full refill interval.
+    public void exhaust() {
+        long now = System.nanoTime();
+        theoreticalArrival.accumulateAndGet(now + burstNanos, Math::max);
+    }
+
+    public int getQueueLength() {
+        return waiterCount;
+    }
+
+    // GCRA: admit if the arrival time after this call stays within one burst of now
+    private boolean take(long now) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long next = Math.max(tat, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return true;
+            }
+        }
+    }
+
+    private long nanosUntilToken(long now) {
+        long tat = theoreticalArrival.get();
+        return Math.max(1, Math.max(tat, now) + intervalNanos - burstNanos - now);
+    }
+
+    // Grant tokens to queued waiters in priority order, then sleep until the next refill
+    private void drainWaiters() {
+        List<Waiter> ready = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            while (!waiters.isEmpty()) {
+                Waiter head = waiters.peek();
+                if (head.ticket.isDone()) {
+                    waiters.poll(); // Cancelled or timed out
+                    continue;
+                }
+                if (!take(now)) {
+                    scheduleDrain(now, nanosUntilToken(now));
+                    break;
+                }
+                waiters.poll();
+                ready.add(head);
+            }
+            waiterCount = waiters.size();
+        } finally {
+            lock.unlock();
+        }
+
+        // Complete outside the lock; dependent stages run on this thread
+        long now = System.nanoTime();
+        boolean returned = false;
+        for (Waiter waiter : ready) {
+            if (waiter.ticket.complete(null)) {
+                granted.increment();
+                recordWait(now - waiter.enqueuedAt);
+            } else {
+                // Cancelled between poll and grant; hand the token back to the queue
+                theoreticalArrival.addAndGet(-intervalNanos);
+                returned = true;
+            }
+        }
+        if (returned && waiterCount > 0) {
+            drainWaiters();
+        }
+    }
+
+    private void scheduleDrain(long now, long delayNanos) {
+        long at = now + delayNanos;
+        if (at >= nextDrainAt && nextDrainAt > now) {
+            return; // An earlier drain is already pending
+        }
+        nextDrainAt = at;
+        scheduler.schedule(() -> {
+            lock.lock();
+            try {
+                nextDrainAt = Long.MAX_VALUE;
+            } finally {
+                lock.unlock();
+            }
+            drainWaiters();
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordWait(long nanos) {
+        waits.increment();
+        totalWaitNanos.add(nanos);
+        waitLatency.record(nanos);
+        if (nanos > maxWaitNanos) {
+            maxWaitNanos = nanos;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(name, availablePermits(), waiterCount, granted.sum(), delayed.sum(),
+                rejected.sum(), waits.sum(), totalWaitNanos.sum(), maxWaitNanos);
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        private final Priority priority;
+        private final long sequence;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Void> ticket = new CompletableFuture<>();
+
+        Waiter(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    // Point-in-time snapshot of limiter metrics
+    public static final class Stats {
+        public final String name;
+        public final int availablePermits;
+        public final int queued;
+        public final long granted;
+        public final long delayed;
+        public final long rejected;
+        public final long waits;
+        public final long totalWaitNanos;
+        public final long maxWaitNanos;
+
+        Stats(String name, int availablePermits, int queued, long granted, long delayed,
+              long rejected, long waits, long totalWaitNanos, long maxWaitNanos) {
+            this.name = name;
+            this.availablePermits = availablePermits;
+            this.queued = queued;
+            this.granted = granted;
+            this.delayed = delayed;
+            this.rejected = rejected;
+            this.waits = waits;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public double averageWaitMillis() {
+            return waits == 0 ? 0 : totalWaitNanos / 1_000_000.0 / waits;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s limiter: %d permits available, %d queued, %d granted, %d delayed "
+                            + "(avg wait %.1f ms, max %.1f ms), %d rejected",
+                    name, availablePermits, queued, granted, delayed,
+                    averageWaitMillis(), maxWaitNanos / 1_000_000.0, rejected);
+        }
+    }
+}
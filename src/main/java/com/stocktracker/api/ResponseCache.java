@@ -0,0 +1,382 @@
+package com.stocktracker.api;
+
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+// Size-bounded on-disk cache of API response bodies. Each entry is a body file plus a
+// small properties file holding its expiry and validators (ETag / Last-Modified) for
+// conditional revalidation. The index lives in memory in LRU order and is rebuilt from
+// the metadata files on startup.
+//
+// Entries handed out are held until closed. Every put writes a new body file, so an entry
+// that is replaced or evicted while held keeps its files until the last holder closes it.
+public class ResponseCache {
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final Counter DELETE_FAILURES = Metrics.counter("api.cache.deleteFailures");
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    // Holders per body file, and the files to delete once their last holder is done
+    private final Map<Path, Integer> holders = new HashMap<>();
+    private final Set<Path> retired = new HashSet<>();
+
+    // Metrics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        loadIndex();
+    }
+
+    // A cached entry, fresh or stale, to be closed after use. Stale entries are still useful
+    // for revalidation.
+    public synchronized Entry get(String key) {
+        Entry entry = index.get(key);
+        if (entry != null && !Files.exists(entry.body)) {
+            remove(key);
+            entry = null;
+        }
+        return entry == null ? null : hold(entry);
+    }
+
+    // Fresh entry for the key, counting a hit or a miss
+    public Entry getFresh(String key, Instant now) {
+        Entry entry = get(key);
+        if (entry != null && entry.isFresh(now)) {
+            hits.increment();
+            return entry;
+        }
+        if (entry != null) {
+            entry.close();
+        }
+        misses.increment();
+        return null;
+    }
+
+    // Checks a downloaded body before it is cached and returns when it stops being fresh,
+    // which may depend on what the body holds; throw to keep it out of the cache
+    public interface Validator {
+        Instant check(BufferedSource body) throws IOException;
+    }
+
+    // Store a body read from the network, returning the new entry to be closed after use.
+    // The body is streamed to a temporary file and moved into place under a name of its own,
+    // so readers never see a partially written entry and holders of the previous one keep it.
+    public Entry put(String key, BufferedSource body, String etag, String lastModified,
+                     Validator validator) throws IOException {
+        Path temp = Files.createTempFile(directory, fileName(key) + "-", TEMP_SUFFIX);
+        try {
+            try (BufferedSink sink = Okio.buffer(Okio.sink(temp))) {
+                sink.writeAll(body);
+            }
+            Instant expiresAt;
+            try (BufferedSource written = Okio.buffer(Okio.source(temp))) {
+                expiresAt = validator.check(written);
+            }
+            String tempName = temp.getFileName().toString();
+            Path bodyFile = temp.resolveSibling(
+                    tempName.substring(0, tempName.length() - TEMP_SUFFIX.length()) + BODY_SUFFIX);
+            Files.move(temp, bodyFile, StandardCopyOption.ATOMIC_MOVE);
+
+            Entry entry = new Entry(this, key, bodyFile, Files.size(bodyFile), expiresAt, etag, lastModified);
+            writeMeta(entry);
+            synchronized (this) {
+                Entry previous = index.put(key, entry);
+                if (previous != null) {
+                    totalBytes -= previous.size;
+                    retire(previous);
+                }
+                totalBytes += entry.size;
+                hold(entry);
+                // Never the entry just stored, even if it alone is over budget; the next put
+                // evicts it
+                evictToSize(entry);
+            }
+            return entry;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // The server confirmed the cached body is still current (HTTP 304). The entry must still
+    // be held; the refreshed one is held separately and closed after use.
+    public Entry revalidated(Entry entry, Instant expiresAt) throws IOException {
+        revalidations.increment();
+        Entry refreshed = new Entry(this, entry.key, entry.body, entry.size, expiresAt,
+                entry.etag, entry.lastModified);
+        synchronized (this) {
+            // Unless it was replaced or evicted meanwhile
+            Entry current = index.get(entry.key);
+            if (current != null && current.body.equals(entry.body)) {
+                writeMeta(refreshed);
+                index.put(entry.key, refreshed);
+            }
+            return hold(refreshed);
+        }
+    }
+
+    public synchronized void clear() {
+        for (String key : index.keySet().toArray(new String[0])) {
+            remove(key);
+        }
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(index.size(), totalBytes, maxBytes,
+                    hits.sum(), misses.sum(), revalidations.sum(), evictions.sum());
+        }
+    }
+
+    private void evictToSize(Entry keep) {
+        Iterator<Map.Entry<String, Entry>> eldest = index.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Entry entry = eldest.next().getValue();
+            if (entry == keep) {
+                continue;
+            }
+            eldest.remove();
+            totalBytes -= entry.size;
+            retire(entry);
+            evictions.increment();
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = index.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.size;
+            retire(entry);
+        }
+    }
+
+    private Entry hold(Entry entry) {
+        holders.merge(entry.body, 1, Integer::sum);
+        return entry;
+    }
+
+    private synchronized void release(Entry entry) {
+        Integer count = holders.get(entry.body);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            holders.put(entry.body, count - 1);
+            return;
+        }
+        holders.remove(entry.body);
+        if (retired.remove(entry.body)) {
+            deleteFiles(entry.body);
+        }
+    }
+
+    // Delete the entry's files now, or once the last holder closes it
+    private void retire(Entry entry) {
+        if (holders.containsKey(entry.body)) {
+            retired.add(entry.body);
+        } else {
+            deleteFiles(entry.body);
+        }
+    }
+
+    private static void deleteFiles(Path body) {
+        try {
+            Files.deleteIfExists(body);
+            Files.deleteIfExists(metaFile(body));
+        } catch (IOException e) {
+            // Left behind until the entry is overwritten or the directory is cleaned up
+            DELETE_FAILURES.increment();
+        }
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty("key", entry.key);
+        meta.setProperty("expiresAt", Long.toString(entry.expiresAt.toEpochMilli()));
+        if (entry.etag != null) meta.setProperty("etag", entry.etag);
+        if (entry.lastModified != null) meta.setProperty("lastModified", entry.lastModified);
+        try (OutputStream out = Files.newOutputStream(metaFile(entry.body))) {
+            meta.store(out, null);
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        try (DirectoryStream<Path> metas = Files.newDirectoryStream(directory, "*" + META_SUFFIX)) {
+            for (Path metaPath : metas) {
+                String metaName = metaPath.getFileName().toString();
+                Path bodyFile = metaPath.resolveSibling(
+                        metaName.substring(0, metaName.length() - META_SUFFIX.length()) + BODY_SUFFIX);
+                if (!Files.exists(bodyFile)) {
+                    Files.deleteIfExists(metaPath);
+                    continue;
+                }
+                Properties meta = new Properties();
+                try (InputStream in = Files.newInputStream(metaPath)) {
+                    meta.load(in);
+                    Entry entry = new Entry(this, meta.getProperty("key"), bodyFile, Files.size(bodyFile),
+                            Instant.ofEpochMilli(Long.parseLong(meta.getProperty("expiresAt"))),
+                            meta.getProperty("etag"), meta.getProperty("lastModified"));
+                    // Two bodies for one key after a crash between storing the new body and
+                    // dropping the old one; keep whichever expires later
+                    Entry previous = index.get(entry.key);
+                    if (previous != null && previous.expiresAt.isAfter(entry.expiresAt)) {
+                        deleteFiles(bodyFile);
+                        continue;
+                    }
+                    if (previous != null) {
+                        totalBytes -= previous.size;
+                        deleteFiles(previous.body);
+                    }
+                    index.put(entry.key, entry);
+                    totalBytes += entry.size;
+                } catch (IOException | RuntimeException e) {
+                    // Corrupt metadata: drop the entry rather than failing startup
+                    Files.deleteIfExists(metaPath);
+                    Files.deleteIfExists(bodyFile);
+                }
+            }
+        }
+        evictToSize(null);
+    }
+
+    private static Path metaFile(Path bodyFile) {
+        String name = bodyFile.getFileName().toString();
+        return bodyFile.resolveSibling(name.substring(0, name.length() - BODY_SUFFIX.length()) + META_SUFFIX);
+    }
+
+    // Readable prefix plus a digest so distinct keys never collide after sanitising
+    private static String fileName(String key) {
+        String readable = key.replaceAll("[^A-Za-z0-9_-]", "_");
+        if (readable.length() > 48) {
+            readable = readable.substring(0, 48);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(readable).append('-');
+            for (int i = 0; i < 8; i++) {
+                name.append(String.format("%02x", digest[i]));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every JRE ships SHA-256
+        }
+    }
+
+    public static final class Entry implements AutoCloseable {
+        private final ResponseCache cache;
+        private final String key;
+        private final Path body;
+        private final long size;
+        private final Instant expiresAt;
+        private final String etag;
+        private final String lastModified;
+
+        Entry(ResponseCache cache, String key, Path body, long size, Instant expiresAt, String etag,
+              String lastModified) {
+            this.cache = cache;
+            this.key = key;
+            this.body = body;
+            this.size = size;
+            this.expiresAt = expiresAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public boolean isFresh(Instant now) {
+            return now.isBefore(expiresAt);
+        }
+
+        public BufferedSource open() throws IOException {
+            return Okio.buffer(Okio.source(body));
+        }
+
+        public String readString() throws IOException {
+            return Files.readString(body);
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        // Done with the entry; close any source opened from it first
+        @Override
+        public void close() {
+            cache.release(this);
+        }
+    }
+
+    // Point-in-time snapshot of cache metrics
+    public static final class Stats {
+        public final int entries;
+        public final long bytes;
+        public final long maxBytes;
+        public final long hits;
+        public final long misses;
+        public final long revalidations;
+        public final long evictions;
+
+        Stats(int entries, long bytes, long maxBytes, long hits, long misses, long revalidations, long evictions) {
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.revalidations = revalidations;
+            this.evictions = evictions;
+        }
+
+        public double hitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("response cache: %d entries, %d/%d KiB, %d hits, %d misses (%.0f%% hit), "
+                            + "%d revalidated, %d evicted",
+                    entries, bytes / 1024, maxBytes / 1024, hits, misses, hitRatio() * 100,
+                    revalidations, evictions);
+        }
+    }
+}
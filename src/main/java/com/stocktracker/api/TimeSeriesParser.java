@@ -0,0 +1,395 @@
+package com.stocktracker.api;
+
+import com.stocktracker.metrics.LatencyHistogram;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
+import okio.Buffer;
+import okio.BufferedSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// Single-pass pull parser for Alpha Vantage time series responses. It reads straight from
+// the response body, skips everything except the "Time Series (...)" object and collects
+// each bar's fields as primitives, without ever holding the document in memory.
+class TimeSeriesParser {
+    private static final String SERIES_PREFIX = "Time Series";
+    // Includes waiting for the body when parsing straight off the socket
+    private static final LatencyHistogram PARSE_LATENCY = Metrics.histogram("api.parse");
+
+    private final BufferedSource source;
+    private final Buffer buffer;
+
+    TimeSeriesParser(BufferedSource source) {
+        this.source = source;
+        this.buffer = source.getBuffer();
+    }
+
+    // Parse up to maxBars bars, most recent first. Alpha Vantage lists bars newest first,
+    // so parsing stops after maxBars entries; if a response turns out not to be ordered,
+    // the whole series is read and sorted instead.
+    List<StockData> parse(int maxBars) throws IOException {
+        long start = System.nanoTime();
+        Columns bars = readDocument(maxBars);
+        PARSE_LATENCY.recordSince(start);
+        int count = Math.min(bars.size, maxBars);
+        List<StockData> list = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            int i = bars.newest(n);
+            list.add(new StockData(StockData.fromEpochSecond(bars.time[i]), bars.open[i], bars.high[i],
+                    bars.low[i], bars.close[i], bars.volume[i]));
+        }
+        return list;
+    }
+
+    // Same bars as parse(maxBars) but straight into columns, oldest first, with no
+    // StockData created along the way. Duplicate timestamps keep the first one listed.
+    PriceSeries parsePrices(int maxBars) throws IOException {
+        long start = System.nanoTime();
+        Columns bars = readDocument(maxBars);
+        PARSE_LATENCY.recordSince(start);
+        int count = Math.min(bars.size, maxBars);
+        PriceSeries series = new PriceSeries(Math.max(count, 1));
+        for (int n = count - 1; n >= 0; n--) {
+            int i = bars.newest(n);
+            if (!series.isEmpty() && bars.time[i] <= series.getTime(series.size() - 1)) {
+                continue;
+            }
+            series.append(bars.time[i], bars.open[i], bars.high[i], bars.low[i], bars.close[i], bars.volume[i]);
+        }
+        return series;
+    }
+
+    private Columns readDocument(int maxBars) throws IOException {
+        Set<String> keys = new LinkedHashSet<>();
+        expect('{');
+        if (peekAfterWhitespace() == '}') {
+            throw new RuntimeException("No time series data found in API response. Available keys: []");
+        }
+        do {
+            String key = readString();
+            expect(':');
+            keys.add(key);
+
+            if (key.startsWith(SERIES_PREFIX)) {
+                return readSeries(maxBars);
+            }
+            switch (key) {
+                case "Note":
+                    throw new RuntimeException("API Rate Limit: " + readString());
+                case "Information":
+                    // Newer responses report rate limits and premium-only endpoints here
+                    throw new RuntimeException("API Rate Limit: " + readString());
+                case "Error Message":
+                    throw new RuntimeException("API Error: " + readString());
+                case "Global Quote":
+                    throw new RuntimeException("Received quote data instead of time series. Please use a different endpoint.");
+                default:
+                    skipValue();
+            }
+        } while (nextMember('}'));
+
+        throw new RuntimeException("No time series data found in API response. Available keys: " + keys);
+    }
+
+    private Columns readSeries(int maxBars) throws IOException {
+        Columns bars = new Columns(Math.min(maxBars, 1024));
+        expect('{');
+        if (peekAfterWhitespace() == '}') {
+            return bars;
+        }
+        do {
+            String date = readString();
+            long time = parseTimestamp(date).toEpochSecond(ZoneOffset.UTC);
+            expect(':');
+            readBar(date, time, bars);
+            if (bars.ordered && bars.size >= maxBars) {
+                return bars; // Early exit: the rest of the body is never read
+            }
+        } while (nextMember('}'));
+        return bars;
+    }
+
+    private void readBar(String date, long time, Columns bars) throws IOException {
+        double open = Double.NaN, high = Double.NaN, low = Double.NaN, close = Double.NaN;
+        long volume = -1;
+        expect('{');
+        if (peekAfterWhitespace() != '}') {
+            do {
+                // Field names look like "1. open"; adjusted series add "5. adjusted close"
+                String field = readString();
+                expect(':');
+                String name = field.substring(field.indexOf(' ') + 1);
+                switch (name) {
+                    case "open":
+                        open = readDouble();
+                        break;
+                    case "high":
+                        high = readDouble();
+                        break;
+                    case "low":
+                        low = readDouble();
+                        break;
+                    case "close":
+                        close = readDouble();
+                        break;
+                    case "volume":
+                        volume = (long) readDouble();
+                        break;
+                    default:
+                        skipValue();
+                }
+            } while (nextMember('}'));
+        } else {
+            expect('}');
+        }
+        if (Double.isNaN(open) || Double.isNaN(high) || Double.isNaN(low) || Double.isNaN(close) || volume < 0) {
+            throw new RuntimeException("Incomplete bar in API response for " + parseTimestamp(date));
+        }
+        bars.add(time, open, high, low, close, volume);
+    }
+
+    // "yyyy-MM-dd" or "yyyy-MM-dd HH:mm[:ss]"
+    static LocalDateTime parseTimestamp(String text) {
+        try {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 2);
+            int day = digits(text, 8, 2);
+            if (text.length() == 10) {
+                return LocalDateTime.of(year, month, day, 0, 0);
+            }
+            int hour = digits(text, 11, 2);
+            int minute = digits(text, 14, 2);
+            int second = text.length() >= 19 ? digits(text, 17, 2) : 0;
+            return LocalDateTime.of(year, month, day, hour, minute, second);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Unrecognised bar timestamp in API response: " + text, e);
+        }
+    }
+
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(text);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Values arrive as strings ("185.0400"), but accept bare numbers too
+    private double readDouble() throws IOException {
+        byte b = peekAfterWhitespace();
+        String text = b == '"' ? readString() : readLiteral();
+        return Double.parseDouble(text);
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        long end = source.indexOf((byte) '"');
+        if (end < 0) {
+            throw new EOFException("Unterminated string in API response");
+        }
+        long escape = buffer.indexOf((byte) '\\', 0, end);
+        if (escape < 0) {
+            String value = source.readUtf8(end);
+            source.skip(1);
+            return value;
+        }
+        return readEscapedString();
+    }
+
+    private String readEscapedString() throws IOException {
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            byte b = source.readByte();
+            if (b == '"') {
+                return value.toString();
+            }
+            if (b != '\\') {
+                // Multi-byte UTF-8 sequences: re-read as a code point
+                if (b < 0) {
+                    Buffer sequence = new Buffer().writeByte(b);
+                    int extra = (b & 0xE0) == 0xC0 ? 1 : (b & 0xF0) == 0xE0 ? 2 : 3;
+                    source.require(extra);
+                    source.read(sequence, extra);
+                    value.append(sequence.readUtf8());
+                } else {
+                    value.append((char) b);
+                }
+                continue;
+            }
+            byte escaped = source.readByte();
+            switch (escaped) {
+                case 'n': value.append('\n'); break;
+                case 't': value.append('\t'); break;
+                case 'r': value.append('\r'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u': value.append((char) Integer.parseInt(source.readUtf8(4), 16)); break;
+                default: value.append((char) escaped);
+            }
+        }
+    }
+
+    private String readLiteral() throws IOException {
+        StringBuilder literal = new StringBuilder();
+        while (source.request(1)) {
+            byte b = buffer.getByte(0);
+            if (b == ',' || b == '}' || b == ']' || isWhitespace(b)) {
+                break;
+            }
+            literal.append((char) source.readByte());
+        }
+        return literal.toString();
+    }
+
+    private void skipValue() throws IOException {
+        byte b = peekAfterWhitespace();
+        switch (b) {
+            case '"':
+                readString();
+                break;
+            case '{':
+            case '[':
+                skipContainer();
+                break;
+            default:
+                readLiteral();
+        }
+    }
+
+    // Skip a whole object or array by tracking nesting depth; strings may contain brackets
+    private void skipContainer() throws IOException {
+        int depth = 0;
+        do {
+            byte b = source.readByte();
+            if (b == '"') {
+                skipStringBody();
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private void skipStringBody() throws IOException {
+        while (true) {
+            byte b = source.readByte();
+            if (b == '\\') {
+                source.skip(1);
+            } else if (b == '"') {
+                return;
+            }
+        }
+    }
+
+    // After a member: true if a comma follows, false if the container closes
+    private boolean nextMember(char close) throws IOException {
+        byte b = peekAfterWhitespace();
+        source.skip(1);
+        if (b == ',') {
+            return true;
+        }
+        if (b == close) {
+            return false;
+        }
+        throw new IOException("Malformed API response: expected ',' or '" + close + "' but found '" + (char) b + "'");
+    }
+
+    private void expect(char expected) throws IOException {
+        byte b = peekAfterWhitespace();
+        if (b != expected) {
+            throw new IOException("Malformed API response: expected '" + expected + "' but found '" + (char) b + "'");
+        }
+        source.skip(1);
+    }
+
+    private byte peekAfterWhitespace() throws IOException {
+        while (true) {
+            source.require(1);
+            byte b = buffer.getByte(0);
+            if (!isWhitespace(b)) {
+                return b;
+            }
+            source.skip(1);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    // Bars in the order the response lists them. Kept as primitives so both the list and
+    // the columnar results are built from one parse without intermediate objects.
+    private static final class Columns {
+        long[] time;
+        double[] open;
+        double[] high;
+        double[] low;
+        double[] close;
+        long[] volume;
+        int size;
+        // Strictly newest first so far
+        boolean ordered = true;
+        private int[] newestFirst;
+
+        Columns(int capacity) {
+            time = new long[capacity];
+            open = new double[capacity];
+            high = new double[capacity];
+            low = new double[capacity];
+            close = new double[capacity];
+            volume = new long[capacity];
+        }
+
+        void add(long t, double o, double h, double l, double c, long v) {
+            if (size == time.length) {
+                int grown = time.length + (time.length >> 1) + 16;
+                time = Arrays.copyOf(time, grown);
+                open = Arrays.copyOf(open, grown);
+                high = Arrays.copyOf(high, grown);
+                low = Arrays.copyOf(low, grown);
+                close = Arrays.copyOf(close, grown);
+                volume = Arrays.copyOf(volume, grown);
+            }
+            if (size > 0 && t >= time[size - 1]) {
+                ordered = false;
+            }
+            time[size] = t;
+            open[size] = o;
+            high[size] = h;
+            low[size] = l;
+            close[size] = c;
+            volume[size] = v;
+            size++;
+        }
+
+        // Index of the n-th newest bar; unordered responses are sorted once on first use
+        int newest(int n) {
+            if (ordered) {
+                return n;
+            }
+            if (newestFirst == null) {
+                newestFirst = IntStream.range(0, size).boxed()
+                        .sorted(Comparator.comparingLong((Integer i) -> time[i]).reversed())
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+            }
+            return newestFirst[n];
+        }
+    }
+}
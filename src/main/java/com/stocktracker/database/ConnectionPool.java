@@ -0,0 +1,295 @@
+package com.stocktracker.database;
+
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.LatencyHistogram;
+import com.stocktracker.metrics.Metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded pool of SQLite connections. Connections handed out are proxies whose
+// close() returns the physical connection to the pool instead of closing it.
+public class ConnectionPool {
+    private final String name;
+    private final String url;
+    private final List<String> pragmas;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+
+    private final BlockingQueue<Connection> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean closed;
+
+    // Metrics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowWaitNanos = new LongAdder();
+    private final LongAdder statementCount = new LongAdder();
+    private final LongAdder statementNanos = new LongAdder();
+    private volatile long maxBorrowWaitNanos;
+    private volatile long maxStatementNanos;
+    private final LatencyHistogram borrowLatency;
+    private final LatencyHistogram statementLatency;
+    private final Counter resetFailures;
+    private final Counter closeFailures;
+
+    public ConnectionPool(String name, String url, List<String> pragmas,
+                          int maxSize, long borrowTimeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.name = name;
+        this.url = url;
+        this.pragmas = List.copyOf(pragmas);
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+        this.borrowLatency = Metrics.histogram("db." + name + ".borrow");
+        this.statementLatency = Metrics.histogram("db." + name + ".statement");
+        Metrics.gauge("db." + name + ".active", active::get);
+        this.resetFailures = Metrics.counter("db." + name + ".resetFailures");
+        this.closeFailures = Metrics.counter("db." + name + ".closeFailures");
+    }
+
+    // Borrow a connection, opening a new one while the pool is below its bound
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool '" + name + "' is closed");
+        }
+        long start = System.nanoTime();
+        Connection physical = idle.poll();
+        if (physical == null) {
+            physical = tryCreate();
+        }
+        if (physical == null) {
+            try {
+                physical = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            if (physical == null) {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a '" + name + "' connection");
+            }
+        }
+        recordBorrow(System.nanoTime() - start);
+        active.incrementAndGet();
+        return wrap(physical);
+    }
+
+    private Connection tryCreate() throws SQLException {
+        while (true) {
+            int current = created.get();
+            if (current >= maxSize) {
+                return null;
+            }
+            if (created.compareAndSet(current, current + 1)) {
+                try {
+                    return open();
+                } catch (SQLException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : pragmas) {
+                stmt.execute(pragma);
+            }
+        }
+        return conn;
+    }
+
+    private void release(Connection physical) {
+        active.decrementAndGet();
+        try {
+            // Never hand out a connection with a half-finished transaction
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (!closed && idle.offer(physical)) {
+                return;
+            }
+        } catch (SQLException e) {
+            resetFailures.increment();
+        }
+        discard(physical);
+    }
+
+    private void discard(Connection physical) {
+        created.decrementAndGet();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            closeFailures.increment();
+        }
+    }
+
+    public void close() {
+        closed = true;
+        List<Connection> drained = new ArrayList<>();
+        idle.drainTo(drained);
+        drained.forEach(this::discard);
+    }
+
+    private void recordBorrow(long nanos) {
+        borrowCount.increment();
+        borrowWaitNanos.add(nanos);
+        borrowLatency.record(nanos);
+        if (nanos > maxBorrowWaitNanos) {
+            maxBorrowWaitNanos = nanos;
+        }
+    }
+
+    private void recordStatement(long nanos) {
+        statementCount.increment();
+        statementNanos.add(nanos);
+        statementLatency.record(nanos);
+        if (nanos > maxStatementNanos) {
+            maxStatementNanos = nanos;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(name, maxSize, created.get(), active.get(),
+                borrowCount.sum(), borrowWaitNanos.sum(), maxBorrowWaitNanos,
+                statementCount.sum(), statementNanos.sum(), maxStatementNanos);
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    // Intercepts close() and times statement execution on pooled connections
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private boolean released;
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || physical.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(physical)) {
+                        return physical;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            Object result = invokeTarget(physical, method, args);
+            if (result instanceof Statement) {
+                return wrapStatement((Statement) result, method.getReturnType());
+            }
+            return result;
+        }
+    }
+
+    private Object wrapStatement(Statement statement, Class<?> type) {
+        return Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (!method.getName().startsWith("execute")) {
+                        return invokeTarget(statement, method, args);
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        return invokeTarget(statement, method, args);
+                    } finally {
+                        recordStatement(System.nanoTime() - start);
+                    }
+                });
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Point-in-time snapshot of pool metrics
+    public static final class Stats {
+        public final String name;
+        public final int maxSize;
+        public final int openConnections;
+        public final int activeConnections;
+        public final long borrows;
+        public final long totalBorrowWaitNanos;
+        public final long maxBorrowWaitNanos;
+        public final long statements;
+        public final long totalStatementNanos;
+        public final long maxStatementNanos;
+
+        Stats(String name, int maxSize, int openConnections, int activeConnections,
+              long borrows, long totalBorrowWaitNanos, long maxBorrowWaitNanos,
+              long statements, long totalStatementNanos, long maxStatementNanos) {
+            this.name = name;
+            this.maxSize = maxSize;
+            this.openConnections = openConnections;
+            this.activeConnections = activeConnections;
+            this.borrows = borrows;
+            this.totalBorrowWaitNanos = totalBorrowWaitNanos;
+            this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+            this.statements = statements;
+            this.totalStatementNanos = totalStatementNanos;
+            this.maxStatementNanos = maxStatementNanos;
+        }
+
+        public double averageBorrowWaitMicros() {
+            return borrows == 0 ? 0 : totalBorrowWaitNanos / 1_000.0 / borrows;
+        }
+
+        public double averageStatementMicros() {
+            return statements == 0 ? 0 : totalStatementNanos / 1_000.0 / statements;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s pool: %d/%d open, %d active, %d borrows (avg wait %.1f us, max %.1f us), "
+                            + "%d statements (avg %.1f us, max %.1f us)",
+                    name, openConnections, maxSize, activeConnections,
+                    borrows, averageBorrowWaitMicros(), maxBorrowWaitNanos / 1_000.0,
+                    statements, averageStatementMicros(), maxStatementNanos / 1_000.0);
+        }
+    }
+}
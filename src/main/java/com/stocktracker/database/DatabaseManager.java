@@ -1,17 +1,40 @@
 package com.stocktracker.database;
 
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DatabaseManager {
-    // Path to your SQLite database file
-    private static final String DB_URL = "jdbc:sqlite:stocks.db";
+    // Path to your SQLite database file; benchmarks and tools point this at a scratch file
+    private static final String DB_URL = System.getProperty("stocktracker.db.url", "jdbc:sqlite:stocks.db");
+    private static final int SCHEMA_VERSION = 4;
+
+    // Pool sizing: SQLite allows a single writer, WAL lets readers run alongside it
+    private static final int READER_POOL_SIZE =
+            Integer.getInteger("stocktracker.db.readers", Math.max(2, Runtime.getRuntime().availableProcessors()));
+    private static final long BORROW_TIMEOUT_MS = Long.getLong("stocktracker.db.borrowTimeoutMs", 10_000);
+
+    // Connection tuning applied to every pooled connection
+    private static final int CACHE_SIZE_KIB = 16_384;
+    private static final long MMAP_SIZE_BYTES = 256L * 1024 * 1024;
+    private static final int BUSY_TIMEOUT_MS = 5_000;
+
+    private static final Counter INIT_FAILURES = Metrics.counter("db.initFailures");
+    private static final Counter MIGRATIONS = Metrics.counter("db.migrations");
+
+    private static ConnectionPool writerPool;
+    private static ConnectionPool readerPool;
 
     // Initialize the database and create tables
     public static void initialize() {
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
 
             // Create tables if they don't exist
@@ -20,16 +43,6 @@ public class DatabaseManager {
                     "username TEXT UNIQUE NOT NULL, " +
                     "password_hash TEXT NOT NULL)");
 
-            stmt.execute("CREATE TABLE IF NOT EXISTS stock_data (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "symbol TEXT NOT NULL, " +
-                    "timestamp DATETIME DEFAULT CURRENT_TIMESTAMP, " +
-                    "open REAL NOT NULL, " +
-                    "high REAL NOT NULL, " +
-                    "low REAL NOT NULL, " +
-                    "close REAL NOT NULL, " +
-                    "volume INTEGER NOT NULL)");
-
             stmt.execute("CREATE TABLE IF NOT EXISTS alerts (" +
                     "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
                     "user_id INTEGER NOT NULL, " +
@@ -37,16 +50,174 @@ public class DatabaseManager {
                     "target_price REAL NOT NULL, " +
                     "FOREIGN KEY(user_id) REFERENCES users(id))");
 
-            System.out.println("Database initialized!");
+            migrate(conn);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            // Callers carry on; their queries fail and report the error where it is seen
+            INIT_FAILURES.increment();
+        }
+    }
+
+    // Bring the schema up to SCHEMA_VERSION, tracked in PRAGMA user_version
+    private static void migrate(Connection conn) throws SQLException {
+        int version;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+        if (version >= SCHEMA_VERSION) {
+            return;
+        }
+
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            if (version < 1) {
+                migrateToKeyedStockData(conn, stmt);
+            }
+            if (version < 2) {
+                createIntradayData(stmt);
+            }
+            if (version < 3) {
+                createAlertsVersion(stmt);
+            }
+            if (version < 4) {
+                createWatchlist(stmt);
+            }
+            stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+            conn.commit();
+            MIGRATIONS.increment();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // v1: stock_data keyed by (symbol, bar time in epoch seconds). WITHOUT ROWID stores the
+    // rows in primary-key order, so the key is also a covering index for symbol/range scans.
+    private static void migrateToKeyedStockData(Connection conn, Statement stmt) throws SQLException {
+        if (tableExists(conn, "stock_data")) {
+            // Legacy rows carry the insert time rather than the bar time, so they cannot be
+            // keyed correctly. Keep them aside instead of guessing.
+            stmt.execute("ALTER TABLE stock_data RENAME TO stock_data_legacy");
+        }
+        stmt.execute("CREATE TABLE stock_data (" +
+                "symbol TEXT NOT NULL, " +
+                "timestamp INTEGER NOT NULL, " +
+                "open REAL NOT NULL, " +
+                "high REAL NOT NULL, " +
+                "low REAL NOT NULL, " +
+                "close REAL NOT NULL, " +
+                "volume INTEGER NOT NULL, " +
+                "PRIMARY KEY (symbol, timestamp)) WITHOUT ROWID");
+    }
+
+    // v2: 1-minute bars in the same layout as stock_data. Coarser intraday bars are always
+    // resampled from these, never stored.
+    private static void createIntradayData(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS intraday_data (" +
+                "symbol TEXT NOT NULL, " +
+                "timestamp INTEGER NOT NULL, " +
+                "open REAL NOT NULL, " +
+                "high REAL NOT NULL, " +
+                "low REAL NOT NULL, " +
+                "close REAL NOT NULL, " +
+                "volume INTEGER NOT NULL, " +
+                "PRIMARY KEY (symbol, timestamp)) WITHOUT ROWID");
+    }
+
+    // v3: bumped by triggers on every change to alerts, from any process, so AlertEngine can
+    // tell whether its index is stale with a single-row read. IF NOT EXISTS because builds
+    // before the migration created these on every start.
+    private static void createAlertsVersion(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS alerts_version (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 0), " +
+                "version INTEGER NOT NULL)");
+        stmt.execute("INSERT OR IGNORE INTO alerts_version(id, version) VALUES (0, 0)");
+        for (String event : new String[] {"INSERT", "UPDATE", "DELETE"}) {
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS alerts_version_" + event.toLowerCase() +
+                    " AFTER " + event + " ON alerts BEGIN " +
+                    "UPDATE alerts_version SET version = version + 1; END");
+        }
+    }
+
+    // v4: symbols kept up to date in the background (see WatchlistScheduler). IF NOT EXISTS
+    // for the same reason as v3.
+    private static void createWatchlist(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS watchlist (" +
+                "symbol TEXT PRIMARY KEY COLLATE NOCASE, " +
+                "added_at INTEGER NOT NULL)");
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
         }
     }
 
 
-    // Get a connection to the database
+    // Get a pooled connection for writes. Closing it returns it to the pool.
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+        return writerPool().borrow();
+    }
+
+    // Get a pooled read-only connection. Reads never block behind the writer in WAL mode.
+    public static Connection getReadConnection() throws SQLException {
+        return readerPool().borrow();
+    }
+
+    public static synchronized ConnectionPool.Stats writerStats() {
+        return writerPool == null ? null : writerPool.stats();
+    }
+
+    public static synchronized ConnectionPool.Stats readerStats() {
+        return readerPool == null ? null : readerPool.stats();
+    }
+
+    // Close all pooled connections, e.g. on application exit
+    public static synchronized void shutdown() {
+        if (writerPool != null) {
+            writerPool.close();
+            writerPool = null;
+        }
+        if (readerPool != null) {
+            readerPool.close();
+            readerPool = null;
+        }
+    }
+
+    private static synchronized ConnectionPool writerPool() {
+        if (writerPool == null) {
+            List<String> pragmas = basePragmas();
+            // journal_mode is persistent in the file, so setting it once on the writer is enough
+            pragmas.add(0, "PRAGMA journal_mode = WAL");
+            writerPool = new ConnectionPool("writer", DB_URL, pragmas, 1, BORROW_TIMEOUT_MS);
+        }
+        return writerPool;
+    }
+
+    private static synchronized ConnectionPool readerPool() {
+        if (readerPool == null) {
+            List<String> pragmas = basePragmas();
+            pragmas.add("PRAGMA query_only = ON");
+            readerPool = new ConnectionPool("reader", DB_URL, pragmas, READER_POOL_SIZE, BORROW_TIMEOUT_MS);
+        }
+        return readerPool;
+    }
+
+    private static List<String> basePragmas() {
+        List<String> pragmas = new ArrayList<>();
+        pragmas.add("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+        // NORMAL is durable across application crashes in WAL mode and avoids an fsync per commit
+        pragmas.add("PRAGMA synchronous = NORMAL");
+        pragmas.add("PRAGMA cache_size = -" + CACHE_SIZE_KIB);
+        pragmas.add("PRAGMA mmap_size = " + MMAP_SIZE_BYTES);
+        pragmas.add("PRAGMA temp_store = MEMORY");
+        return pragmas;
     }
-}
\ No newline at end of file
+}
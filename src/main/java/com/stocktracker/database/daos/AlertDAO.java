@@ -0,0 +1,76 @@
+package com.stocktracker.database.daos;
+
+import com.stocktracker.database.DatabaseManager;
+import com.stocktracker.models.Alert;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AlertDAO {
+
+    // Returns the new alert's id
+    public static long insertAlert(long userId, String symbol, double targetPrice) throws SQLException {
+        String sql = "INSERT INTO alerts(user_id, symbol, target_price) VALUES(?, ?, ?)";
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            pstmt.setLong(1, userId);
+            pstmt.setString(2, symbol);
+            pstmt.setDouble(3, targetPrice);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No id returned for new alert");
+                }
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    public static boolean deleteAlert(long id) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM alerts WHERE id = ?")) {
+            pstmt.setLong(1, id);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    public static List<Alert> getAllAlerts() throws SQLException {
+        List<Alert> alerts = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, user_id, symbol, target_price FROM alerts")) {
+            while (rs.next()) {
+                alerts.add(new Alert(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getDouble(4)));
+            }
+        }
+        return alerts;
+    }
+
+    public static List<Alert> getAlertsForSymbol(String symbol) throws SQLException {
+        List<Alert> alerts = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT id, user_id, symbol, target_price FROM alerts WHERE symbol = ? COLLATE NOCASE")) {
+            pstmt.setString(1, symbol);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    alerts.add(new Alert(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getDouble(4)));
+                }
+            }
+        }
+        return alerts;
+    }
+
+    // Change counter of the alerts table, bumped once per inserted, updated or deleted row by
+    // triggers (see DatabaseManager), so callers can tell whether a reload is needed without
+    // fetching every row
+    public static long version() throws SQLException {
+        try (Connection conn = DatabaseManager.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM alerts_version WHERE id = 0")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
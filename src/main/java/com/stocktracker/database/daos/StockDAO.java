@@ -1,23 +1,57 @@
 package com.stocktracker.database.daos;
 
 import com.stocktracker.database.DatabaseManager;
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class StockDAO {
-    public static boolean insertStockData(String symbol, double open, double high,
-                                          double low, double close, long volume)
-            throws SQLException { // Now throws exception
-        String sql = "INSERT INTO stock_data(symbol, open, high, low, close, volume) VALUES(?, ?, ?, ?, ?, ?)";
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final Counter CLOSE_FAILURES = Metrics.counter("db.closeFailures");
+
+    // Upsert keyed on (symbol, timestamp). Re-fetching an unchanged bar matches the
+    // WHERE clause of no row and is a no-op; a revised bar (e.g. today's) is updated.
+    private static final String UPSERT_SQL = upsertSql("stock_data");
+    // The same for 1-minute bars
+    private static final String INTRADAY_UPSERT_SQL = upsertSql("intraday_data");
+
+    private static String upsertSql(String table) {
+        return "INSERT INTO " + table + "(symbol, timestamp, open, high, low, close, volume) " +
+                "VALUES(?, ?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT(symbol, timestamp) DO UPDATE SET " +
+                "open = excluded.open, high = excluded.high, low = excluded.low, " +
+                "close = excluded.close, volume = excluded.volume " +
+                "WHERE open != excluded.open OR high != excluded.high OR low != excluded.low " +
+                "OR close != excluded.close OR volume != excluded.volume";
+    }
 
+    public static boolean insertStockData(String symbol, LocalDateTime timestamp, double open,
+                                          double high, double low, double close, long volume)
+            throws SQLException { // Now throws exception
         try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
 
             pstmt.setString(1, symbol);
-            pstmt.setDouble(2, open);
-            pstmt.setDouble(3, high);
-            pstmt.setDouble(4, low);
-            pstmt.setDouble(5, close);
-            pstmt.setLong(6, volume);
+            pstmt.setLong(2, timestamp.toEpochSecond(ZoneOffset.UTC));
+            pstmt.setDouble(3, open);
+            pstmt.setDouble(4, high);
+            pstmt.setDouble(5, low);
+            pstmt.setDouble(6, close);
+            pstmt.setLong(7, volume);
 
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
@@ -25,15 +59,442 @@ public class StockDAO {
         }
     }
 
-    public static ResultSet getHistoricalData(String symbol) throws SQLException {
-        Connection conn = DatabaseManager.getConnection();
-        PreparedStatement pstmt = conn.prepareStatement(
-                "SELECT timestamp, open, high, low, close " +
-                        "FROM stock_data WHERE symbol = ? ORDER BY timestamp",
-                ResultSet.TYPE_SCROLL_INSENSITIVE,  // Allow bidirectional navigation
-                ResultSet.CONCUR_READ_ONLY
-        );
-        pstmt.setString(1, symbol);
-        return pstmt.executeQuery();
+    public static boolean insertStockData(String symbol, StockData bar) throws SQLException {
+        return insertStockData(symbol, bar.getTimestamp(), bar.getOpen(), bar.getHigh(),
+                bar.getLow(), bar.getClose(), bar.getVolume());
+    }
+
+    // Bulk upsert all bars for a symbol in a single transaction
+    public static InsertResult insertStockData(String symbol, List<StockData> bars) throws SQLException {
+        return insertStockData(UPSERT_SQL, symbol, bars.iterator(), DEFAULT_BATCH_SIZE);
+    }
+
+    public static InsertResult insertStockData(String symbol, List<StockData> bars, int batchSize)
+            throws SQLException {
+        return insertStockData(UPSERT_SQL, symbol, bars.iterator(), batchSize);
+    }
+
+    // Bulk insert from a stream; bars are consumed lazily so the stream may be larger than memory
+    public static InsertResult insertStockData(String symbol, Stream<StockData> bars, int batchSize)
+            throws SQLException {
+        try (bars) {
+            return insertStockData(UPSERT_SQL, symbol, bars.iterator(), batchSize);
+        }
+    }
+
+    // Bulk upsert straight from columns; no StockData is created per bar
+    public static InsertResult insertStockData(String symbol, PriceSeries bars) throws SQLException {
+        return insertStockData(symbol, bars, DEFAULT_BATCH_SIZE);
+    }
+
+    public static InsertResult insertStockData(String symbol, PriceSeries bars, int batchSize)
+            throws SQLException {
+        return insertSeries(UPSERT_SQL, symbol, bars, batchSize);
+    }
+
+    // Bulk upsert of 1-minute bars into intraday_data; read them back with HistoryQuery.intraday()
+    public static InsertResult insertIntradayData(String symbol, PriceSeries bars) throws SQLException {
+        return insertSeries(INTRADAY_UPSERT_SQL, symbol, bars, DEFAULT_BATCH_SIZE);
+    }
+
+    // Same from a stream, e.g. a CSV import; bars may come in any order
+    public static InsertResult insertIntradayData(String symbol, Stream<StockData> bars, int batchSize)
+            throws SQLException {
+        try (bars) {
+            return insertStockData(INTRADAY_UPSERT_SQL, symbol, bars.iterator(), batchSize);
+        }
+    }
+
+    private static InsertResult insertSeries(String sql, String symbol, PriceSeries bars, int batchSize)
+            throws SQLException {
+        PriceSeries.Cursor cursor = bars.cursor();
+        return insertBars(sql, symbol, pstmt -> {
+            if (!cursor.next()) {
+                return false;
+            }
+            bindBar(pstmt, cursor.getTime(), cursor.getOpen(), cursor.getHigh(), cursor.getLow(),
+                    cursor.getClose(), cursor.getVolume());
+            return true;
+        }, batchSize);
+    }
+
+    private static InsertResult insertStockData(String sql, String symbol, Iterator<StockData> bars, int batchSize)
+            throws SQLException {
+        return insertBars(sql, symbol, pstmt -> {
+            if (!bars.hasNext()) {
+                return false;
+            }
+            StockData bar = bars.next();
+            bindBar(pstmt, bar.getEpochSecond(), bar.getOpen(), bar.getHigh(), bar.getLow(),
+                    bar.getClose(), bar.getVolume());
+            return true;
+        }, batchSize);
+    }
+
+    // Binds the next bar's values to the upsert, or returns false when there are no more
+    private interface BarSource {
+        boolean bindNext(PreparedStatement pstmt) throws SQLException;
+    }
+
+    private static void bindBar(PreparedStatement pstmt, long epochSecond, double open, double high,
+                                double low, double close, long volume) throws SQLException {
+        pstmt.setLong(2, epochSecond);
+        pstmt.setDouble(3, open);
+        pstmt.setDouble(4, high);
+        pstmt.setDouble(5, low);
+        pstmt.setDouble(6, close);
+        pstmt.setLong(7, volume);
+    }
+
+    private static InsertResult insertBars(String sql, String symbol, BarSource bars, int batchSize)
+            throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        long start = System.nanoTime();
+        int rows = 0;
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int pending = 0;
+                while (true) {
+                    pstmt.setString(1, symbol);
+                    if (!bars.bindNext(pstmt)) {
+                        break;
+                    }
+                    pstmt.addBatch();
+
+                    if (++pending == batchSize) {
+                        rows += countAffected(pstmt.executeBatch());
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    rows += countAffected(pstmt.executeBatch());
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return new InsertResult(rows, System.nanoTime() - start);
+    }
+
+    private static int countAffected(int[] results) {
+        int rows = 0;
+        for (int result : results) {
+            // SUCCESS_NO_INFO still means the row was written; 0 is an unchanged upsert
+            if (result > 0 || result == Statement.SUCCESS_NO_INFO) {
+                rows += Math.max(result, 1);
+            }
+        }
+        return rows;
+    }
+
+    // Full history for a symbol, oldest first
+    public static List<StockData> getHistoricalData(String symbol) throws SQLException {
+        return getHistoricalData(HistoryQuery.forSymbol(symbol));
+    }
+
+    // The most recent bars for a symbol, oldest first
+    public static List<StockData> getHistoricalData(String symbol, int lastBars) throws SQLException {
+        return getHistoricalData(HistoryQuery.forSymbol(symbol).lastBars(lastBars));
+    }
+
+    public static List<StockData> getHistoricalData(HistoryQuery query) throws SQLException {
+        List<StockData> bars = new ArrayList<>(query.limit > 0 ? query.limit : 64);
+        queryHistory(query, bars::add);
+        return bars;
+    }
+
+    // The most recent bars for a symbol as columns, oldest first
+    public static PriceSeries getPriceSeries(String symbol, int lastBars) throws SQLException {
+        return getPriceSeries(HistoryQuery.forSymbol(symbol).lastBars(lastBars));
+    }
+
+    // Rows are appended to the columns directly, without a StockData per bar
+    public static PriceSeries getPriceSeries(HistoryQuery query) throws SQLException {
+        PriceSeries bars = new PriceSeries(query.limit > 0 ? query.limit : 64);
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement pstmt = prepare(conn, query);
+             ResultSet rs = pstmt.executeQuery()) {
+            RowReader reader = new RowReader(query.columns);
+            while (rs.next()) {
+                reader.readInto(rs, bars);
+            }
+        }
+        return bars;
+    }
+
+    // Push each matching bar to the consumer; all JDBC resources are closed before returning
+    public static int queryHistory(HistoryQuery query, Consumer<StockData> consumer) throws SQLException {
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement pstmt = prepare(conn, query);
+             ResultSet rs = pstmt.executeQuery()) {
+            RowReader reader = new RowReader(query.columns);
+            int count = 0;
+            while (rs.next()) {
+                consumer.accept(reader.read(rs));
+                count++;
+            }
+            return count;
+        }
+    }
+
+    // Lazily stream matching bars. The stream holds a pooled connection until it is
+    // closed, so always use it in try-with-resources.
+    public static Stream<StockData> streamHistory(HistoryQuery query) throws SQLException {
+        Connection conn = DatabaseManager.getReadConnection();
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            pstmt = prepare(conn, query);
+            rs = pstmt.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(rs, pstmt, conn);
+            throw e;
+        }
+
+        ResultSet results = rs;
+        PreparedStatement statement = pstmt;
+        RowReader reader = new RowReader(query.columns);
+        Spliterator<StockData> spliterator = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super StockData> action) {
+                try {
+                    if (!results.next()) {
+                        return false;
+                    }
+                    action.accept(reader.read(results));
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> closeQuietly(results, statement, conn));
+    }
+
+    private static PreparedStatement prepare(Connection conn, HistoryQuery query) throws SQLException {
+        StringBuilder projection = new StringBuilder("timestamp");
+        for (Column column : query.columns) {
+            projection.append(", ").append(column.columnName);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(projection)
+                .append(" FROM ").append(query.table).append(" WHERE symbol = ?");
+        if (query.from != null) {
+            sql.append(" AND timestamp >= ?");
+        }
+        if (query.to != null) {
+            sql.append(" AND timestamp <= ?");
+        }
+        if (query.limit > 0 && query.latest) {
+            // Walk the key backwards for the newest N rows, then restore ascending order
+            sql.append(" ORDER BY timestamp DESC LIMIT ?");
+            sql.insert(0, "SELECT * FROM (").append(") ORDER BY timestamp");
+        } else {
+            sql.append(" ORDER BY timestamp");
+            if (query.limit > 0) {
+                sql.append(" LIMIT ?");
+            }
+        }
+
+        // Forward-only cursor so the driver steps through rows instead of buffering them
+        PreparedStatement pstmt = conn.prepareStatement(sql.toString(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            pstmt.setFetchSize(query.fetchSize);
+            int index = 1;
+            pstmt.setString(index++, query.symbol);
+            if (query.from != null) {
+                pstmt.setLong(index++, query.from.toEpochSecond(ZoneOffset.UTC));
+            }
+            if (query.to != null) {
+                pstmt.setLong(index++, query.to.toEpochSecond(ZoneOffset.UTC));
+            }
+            if (query.limit > 0) {
+                pstmt.setInt(index, query.limit);
+            }
+            return pstmt;
+        } catch (SQLException | RuntimeException e) {
+            pstmt.close();
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) continue;
+            try {
+                resource.close();
+            } catch (Exception e) {
+                CLOSE_FAILURES.increment();
+            }
+        }
+    }
+
+    // Maps a projected row to StockData; columns left out of the projection read as NaN (volume 0)
+    private static final class RowReader {
+        private final int open, high, low, close, volume;
+
+        RowReader(EnumSet<Column> columns) {
+            int index = 2;
+            open = columns.contains(Column.OPEN) ? index++ : -1;
+            high = columns.contains(Column.HIGH) ? index++ : -1;
+            low = columns.contains(Column.LOW) ? index++ : -1;
+            close = columns.contains(Column.CLOSE) ? index++ : -1;
+            volume = columns.contains(Column.VOLUME) ? index : -1;
+        }
+
+        StockData read(ResultSet rs) throws SQLException {
+            return new StockData(
+                    StockData.fromEpochSecond(rs.getLong(1)),
+                    open > 0 ? rs.getDouble(open) : Double.NaN,
+                    high > 0 ? rs.getDouble(high) : Double.NaN,
+                    low > 0 ? rs.getDouble(low) : Double.NaN,
+                    close > 0 ? rs.getDouble(close) : Double.NaN,
+                    volume > 0 ? rs.getLong(volume) : 0
+            );
+        }
+
+        void readInto(ResultSet rs, PriceSeries bars) throws SQLException {
+            bars.append(
+                    rs.getLong(1),
+                    open > 0 ? rs.getDouble(open) : Double.NaN,
+                    high > 0 ? rs.getDouble(high) : Double.NaN,
+                    low > 0 ? rs.getDouble(low) : Double.NaN,
+                    close > 0 ? rs.getDouble(close) : Double.NaN,
+                    volume > 0 ? rs.getLong(volume) : 0
+            );
+        }
+    }
+
+    // Optional value columns of the bar tables; the timestamp is always selected
+    public enum Column {
+        OPEN("open"), HIGH("high"), LOW("low"), CLOSE("close"), VOLUME("volume");
+
+        private final String columnName;
+
+        Column(String columnName) {
+            this.columnName = columnName;
+        }
+    }
+
+    // Parameters for a historical range query
+    public static final class HistoryQuery {
+        private final String symbol;
+        private String table = "stock_data";
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private int limit;
+        private boolean latest;
+        private EnumSet<Column> columns = EnumSet.allOf(Column.class);
+        private int fetchSize = 256;
+
+        private HistoryQuery(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public static HistoryQuery forSymbol(String symbol) {
+            return new HistoryQuery(symbol);
+        }
+
+        // Read 1-minute bars from intraday_data instead of daily bars
+        public HistoryQuery intraday() {
+            this.table = "intraday_data";
+            return this;
+        }
+
+        // Inclusive lower bound on bar time
+        public HistoryQuery from(LocalDateTime from) {
+            this.from = from;
+            return this;
+        }
+
+        // Inclusive upper bound on bar time
+        public HistoryQuery to(LocalDateTime to) {
+            this.to = to;
+            return this;
+        }
+
+        // At most n bars, starting from the oldest match
+        public HistoryQuery limit(int n) {
+            this.limit = requirePositive(n);
+            this.latest = false;
+            return this;
+        }
+
+        // At most n bars, ending at the newest match
+        public HistoryQuery lastBars(int n) {
+            this.limit = requirePositive(n);
+            this.latest = true;
+            return this;
+        }
+
+        public HistoryQuery columns(Column first, Column... rest) {
+            this.columns = EnumSet.of(first, rest);
+            return this;
+        }
+
+        public HistoryQuery fetchSize(int fetchSize) {
+            this.fetchSize = requirePositive(fetchSize);
+            return this;
+        }
+
+        private static int requirePositive(int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException("Value must be positive: " + value);
+            }
+            return value;
+        }
+    }
+
+    // Carries SQL failures out of a stream pipeline
+    public static final class UncheckedSQLException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public UncheckedSQLException(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    // Outcome of a bulk insert
+    public static final class InsertResult {
+        private final int rowsWritten;
+        private final long elapsedNanos;
+
+        public InsertResult(int rowsWritten, long elapsedNanos) {
+            this.rowsWritten = rowsWritten;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getRowsWritten() {
+            return rowsWritten;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows in %.2f ms", rowsWritten, getElapsedMillis());
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,10 +2,13 @@ package com.stocktracker.database.daos;
 
 import com.stocktracker.database.DatabaseManager;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class UserDAO {
-    // Insert a user into the database
-    public static void insertUser(String username, String passwordHash) {
+
+    // Insert a user into the database; fails if the username is taken
+    public static void insertUser(String username, String passwordHash) throws SQLException {
         String sql = "INSERT INTO users(username, password_hash) VALUES(?, ?)";
 
         try (Connection conn = DatabaseManager.getConnection();
@@ -14,27 +17,22 @@ public class UserDAO {
             pstmt.setString(1, username);
             pstmt.setString(2, passwordHash);
             pstmt.executeUpdate();
-            System.out.println("User added!");
-
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
-    // Get all users from the database
-    public static void getAllUsers() {
-        String sql = "SELECT * FROM users";
+    // Get all usernames from the database
+    public static List<String> getAllUsers() throws SQLException {
+        String sql = "SELECT username FROM users";
+        List<String> usernames = new ArrayList<>();
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                System.out.println("User: " + rs.getString("username"));
+                usernames.add(rs.getString("username"));
             }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
+        return usernames;
     }
-}
\ No newline at end of file
+}
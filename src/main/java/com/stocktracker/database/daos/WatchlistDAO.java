@@ -0,0 +1,44 @@
+package com.stocktracker.database.daos;
+
+import com.stocktracker.database.DatabaseManager;
+import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public class WatchlistDAO {
+
+    // Returns false if the symbol was already on the watchlist
+    public static boolean addSymbol(String symbol) throws SQLException {
+        String sql = "INSERT OR IGNORE INTO watchlist(symbol, added_at) VALUES(?, ?)";
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, symbol.toUpperCase());
+            pstmt.setLong(2, Instant.now().getEpochSecond());
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    public static boolean removeSymbol(String symbol) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM watchlist WHERE symbol = ?")) {
+            pstmt.setString(1, symbol);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    // Watched symbols in the order they were added
+    public static List<String> getSymbols() throws SQLException {
+        List<String> symbols = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT symbol FROM watchlist ORDER BY added_at, symbol")) {
+            while (rs.next()) {
+                symbols.add(rs.getString(1));
+            }
+        }
+        return symbols;
+    }
+}
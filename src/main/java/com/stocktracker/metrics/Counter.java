@@ -0,0 +1,27 @@
+package com.stocktracker.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Monotonic event count; increments from many threads don't contend on one cache line
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+}
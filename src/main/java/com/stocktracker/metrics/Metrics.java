@@ -0,0 +1,196 @@
+package com.stocktracker.metrics;
+
+import com.stocktracker.util.DaemonThreads;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide registry of named counters, gauges and latency histograms. Hot paths look
+// their metric up once into a static field and then only pay for the record itself.
+// Names are dotted by layer: api.*, ratelimit.*, db.*, ui.*.
+public final class Metrics {
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+    private static final Map<String, String> notes = new ConcurrentHashMap<>();
+
+    private static final Counter JMX_FAILURES = counter("metrics.jmxFailures");
+    private static final Counter DUMP_FAILURES = counter("metrics.dumpFailures");
+
+    // Roll the dump file over once it gets this big; one previous file is kept
+    private static final long MAX_DUMP_BYTES = 10L * 1024 * 1024;
+
+    private static ObjectName registeredName;
+    private static ScheduledExecutorService dumper;
+    private static Path dumpFile;
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    // A value read when metrics are reported, e.g. a cache hit ratio or a queue length
+    public static void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // Latest detail behind a counter, e.g. where a stalled thread was stuck; reported after
+    // the numbers, replacing the previous note of the same name
+    public static void note(String name, String text) {
+        notes.put(name, text);
+    }
+
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    // Everything as text, one metric per line sorted by name
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append("# metrics at ").append(Instant.now()).append('\n');
+        new TreeMap<>(histograms).forEach((name, histogram) -> {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.getCount() > 0) {
+                report.append(name).append(' ').append(snapshot).append('\n');
+            }
+        });
+        new TreeMap<>(counters).forEach((name, counter) ->
+                report.append(name).append(' ').append(counter.get()).append('\n'));
+        new TreeMap<>(gauges).forEach((name, gauge) ->
+                report.append(name).append(' ').append(String.format("%.3f", readGauge(gauge))).append('\n'));
+        new TreeMap<>(notes).forEach((name, text) ->
+                report.append(name).append(":\n").append(text).append('\n'));
+        return report.toString();
+    }
+
+    // Expose the registry over JMX; safe to call more than once
+    public static synchronized void registerMBean() {
+        if (registeredName != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.stocktracker:type=Metrics");
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MBean(), name);
+            }
+            registeredName = name;
+        } catch (JMException e) {
+            JMX_FAILURES.increment();
+        }
+    }
+
+    // Append a report to the file every interval, and once more on stopDump
+    public static synchronized void startDump(Path file, Duration interval) {
+        if (dumper != null) {
+            return;
+        }
+        dumpFile = file;
+        dumper = Executors.newSingleThreadScheduledExecutor(DaemonThreads.named("metrics-dump"));
+        dumper.scheduleAtFixedRate(Metrics::dump, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stopDump() {
+        if (dumper == null) {
+            return;
+        }
+        dumper.shutdownNow();
+        dumper = null;
+        dump();
+    }
+
+    private static void dump() {
+        Path file = dumpFile;
+        try {
+            if (Files.exists(file) && Files.size(file) > MAX_DUMP_BYTES) {
+                Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.writeString(file, report() + '\n', StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException | RuntimeException e) {
+            DUMP_FAILURES.increment();
+        }
+    }
+
+    private static double readGauge(DoubleSupplier gauge) {
+        try {
+            return gauge.getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1fus", nanos / 1_000.0);
+        }
+        if (nanos < 1_000_000_000L) {
+            return String.format("%.1fms", nanos / 1_000_000.0);
+        }
+        return String.format("%.1fs", nanos / 1_000_000_000.0);
+    }
+
+    private static final class MBean implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> values = new TreeMap<>();
+            counters.forEach((name, counter) -> values.put(name, counter.get()));
+            return values;
+        }
+
+        @Override
+        public Map<String, Double> getGauges() {
+            Map<String, Double> values = new TreeMap<>();
+            gauges.forEach((name, gauge) -> values.put(name, readGauge(gauge)));
+            return values;
+        }
+
+        @Override
+        public Map<String, String> getHistograms() {
+            Map<String, String> values = new TreeMap<>();
+            histograms.forEach((name, histogram) -> values.put(name, histogram.snapshot().toString()));
+            return values;
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.stocktracker.metrics;
+
+import java.util.Map;
+
+// JMX view of the registry, under com.stocktracker:type=Metrics (e.g. in JConsole or VisualVM)
+public interface MetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, Double> getGauges();
+
+    // Summary line per histogram: count, mean, percentiles and max
+    Map<String, String> getHistograms();
+
+    String getReport();
+
+    void reset();
+}
@@ -0,0 +1,37 @@
+package com.stocktracker.models;
+
+// A user's price alert on a symbol, as stored in the alerts table
+public class Alert {
+    private final long id;
+    private final long userId;
+    private final String symbol;
+    private final double targetPrice;
+
+    public Alert(long id, long userId, String symbol, double targetPrice) {
+        this.id = id;
+        this.userId = userId;
+        this.symbol = symbol;
+        this.targetPrice = targetPrice;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getTargetPrice() {
+        return targetPrice;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("alert #%d: %s at %.2f (user %d)", id, symbol, targetPrice, userId);
+    }
+}
@@ -0,0 +1,259 @@
+package com.stocktracker.models;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Columnar bar storage: parallel primitive arrays instead of one StockData object per bar.
+// Times are epoch seconds in the same convention as StockData.getEpochSecond(), and bars
+// are kept oldest first. A bar costs 48 bytes here against roughly 140 bytes for a
+// StockData with its LocalDateTime plus the list slot pointing at it.
+public class PriceSeries {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private long[] time;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private long[] volume;
+    // Slices share the arrays of their parent and see [offset, offset + size)
+    private final int offset;
+    private int size;
+    private final boolean slice;
+
+    public PriceSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PriceSeries(int capacity) {
+        time = new long[capacity];
+        open = new double[capacity];
+        high = new double[capacity];
+        low = new double[capacity];
+        close = new double[capacity];
+        volume = new long[capacity];
+        offset = 0;
+        slice = false;
+    }
+
+    private PriceSeries(PriceSeries parent, int offset, int size) {
+        time = parent.time;
+        open = parent.open;
+        high = parent.high;
+        low = parent.low;
+        close = parent.close;
+        volume = parent.volume;
+        this.offset = offset;
+        this.size = size;
+        slice = true;
+    }
+
+    // Copy a list of bars in; the list must already be oldest first
+    public static PriceSeries of(List<StockData> bars) {
+        PriceSeries series = new PriceSeries(Math.max(bars.size(), 1));
+        for (StockData bar : bars) {
+            series.append(bar);
+        }
+        return series;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void append(long epochSecond, double open, double high, double low, double close, long volume) {
+        checkWritable();
+        if (size > 0 && epochSecond <= time[size - 1]) {
+            throw new IllegalArgumentException("Bars must be appended in time order: " + epochSecond
+                    + " after " + time[size - 1]);
+        }
+        ensureCapacity(size + 1);
+        int i = size++;
+        this.time[i] = epochSecond;
+        this.open[i] = open;
+        this.high[i] = high;
+        this.low[i] = low;
+        this.close[i] = close;
+        this.volume[i] = volume;
+    }
+
+    public void append(StockData bar) {
+        append(bar.getEpochSecond(), bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume());
+    }
+
+    // Overwrite the newest bar, e.g. the session's still-forming candle
+    public void replaceLast(double open, double high, double low, double close, long volume) {
+        checkWritable();
+        if (size == 0) {
+            throw new IllegalStateException("Series is empty");
+        }
+        int i = size - 1;
+        this.open[i] = open;
+        this.high[i] = high;
+        this.low[i] = low;
+        this.close[i] = close;
+        this.volume[i] = volume;
+    }
+
+    public void clear() {
+        checkWritable();
+        size = 0;
+    }
+
+    public long getTime(int i) {
+        return time[index(i)];
+    }
+
+    public double getOpen(int i) {
+        return open[index(i)];
+    }
+
+    public double getHigh(int i) {
+        return high[index(i)];
+    }
+
+    public double getLow(int i) {
+        return low[index(i)];
+    }
+
+    public double getClose(int i) {
+        return close[index(i)];
+    }
+
+    public long getVolume(int i) {
+        return volume[index(i)];
+    }
+
+    public LocalDateTime getTimestamp(int i) {
+        return StockData.fromEpochSecond(getTime(i));
+    }
+
+    // Materialize one bar as an object, for code that still works on StockData
+    public StockData get(int i) {
+        int j = index(i);
+        return new StockData(StockData.fromEpochSecond(time[j]), open[j], high[j], low[j], close[j], volume[j]);
+    }
+
+    public List<StockData> toList() {
+        List<StockData> bars = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            bars.add(get(i));
+        }
+        return bars;
+    }
+
+    // First bar at or after the time (size() if there is none)
+    public int lowerBound(long epochSecond) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time[offset + mid] < epochSecond) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Zero-copy read-only view of bars [from, to), sharing this series' arrays
+    public PriceSeries slice(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Slice [" + from + ", " + to + ") of " + size + " bars");
+        }
+        return new PriceSeries(this, offset + from, to - from);
+    }
+
+    // Bars with from <= time <= to, as a view
+    public PriceSeries between(long fromEpochSecond, long toEpochSecond) {
+        return slice(lowerBound(fromEpochSecond), lowerBound(toEpochSecond + 1));
+    }
+
+    // Heap held by the arrays; slices report only their share
+    public long sizeInBytes() {
+        int bars = slice ? size : time.length;
+        return (long) bars * (Long.BYTES * 2 + Double.BYTES * 4);
+    }
+
+    // Reusable view of one bar at a time, so loops read fields without allocating
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    private int index(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Bar " + i + " of " + size);
+        }
+        return offset + i;
+    }
+
+    private void checkWritable() {
+        if (slice) {
+            throw new UnsupportedOperationException("Slices of a price series are read-only");
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= time.length) return;
+        int grown = Math.max(needed, time.length + (time.length >> 1) + 16);
+        time = Arrays.copyOf(time, grown);
+        open = Arrays.copyOf(open, grown);
+        high = Arrays.copyOf(high, grown);
+        low = Arrays.copyOf(low, grown);
+        close = Arrays.copyOf(close, grown);
+        volume = Arrays.copyOf(volume, grown);
+    }
+
+    // Flyweight over the series: for (cursor.moveTo(0); cursor.isValid(); cursor.next())
+    public final class Cursor {
+        private int i = -1;
+
+        public Cursor moveTo(int index) {
+            i = index;
+            return this;
+        }
+
+        public boolean next() {
+            return ++i < size;
+        }
+
+        public boolean isValid() {
+            return i >= 0 && i < size;
+        }
+
+        public int index() {
+            return i;
+        }
+
+        public long getTime() {
+            return time[offset + i];
+        }
+
+        public double getOpen() {
+            return open[offset + i];
+        }
+
+        public double getHigh() {
+            return high[offset + i];
+        }
+
+        public double getLow() {
+            return low[offset + i];
+        }
+
+        public double getClose() {
+            return close[offset + i];
+        }
+
+        public long getVolume() {
+            return volume[offset + i];
+        }
+    }
+}
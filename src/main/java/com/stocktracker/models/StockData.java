@@ -1,6 +1,7 @@
 package com.stocktracker.models;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 public class StockData {
     private LocalDateTime timestamp;
@@ -45,4 +46,14 @@ public class StockData {
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
+
+    // Bar times are exchange-local wall clock times; they are stored as epoch seconds
+    // with a UTC offset so the stored value round-trips to the same LocalDateTime.
+    public long getEpochSecond() {
+        return timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,279 @@
+package com.stocktracker.service;
+
+import com.stocktracker.database.daos.AlertDAO;
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.Alert;
+import com.stocktracker.models.StockData;
+import com.stocktracker.util.DaemonThreads;
+import com.stocktracker.util.Listeners;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Checks prices against every stored alert. Alerts are indexed by symbol with their target
+// prices sorted, so a price move from p0 to p1 finds the crossed targets with two binary
+// searches: O(log n + hits) per tick however many alerts exist. The index is immutable and
+// swapped atomically on reload, so the tick path never locks.
+public class AlertEngine {
+    private static final Counter RELOADS = Metrics.counter("alerts.reloads");
+    private static final Counter RELOAD_FAILURES = Metrics.counter("alerts.reloadFailures");
+
+    private volatile Map<String, SymbolAlerts> index = Map.of();
+    // alerts_version the index was built from; -1 before the first load
+    private volatile long loadedVersion = -1;
+    // Last price seen per symbol; a crossing needs a previous price to cross from
+    private final Map<String, Double> lastPrices = new ConcurrentHashMap<>();
+    private final Listeners<Listener> listeners = new Listeners<>();
+    private ScheduledExecutorService reloader;
+
+    public interface Listener {
+        void onAlert(AlertEvent event);
+    }
+
+    // Events are handed to the executor, e.g. Platform::runLater for UI listeners
+    public void addListener(Listener listener, Executor executor) {
+        listeners.add(listener, executor);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Rebuild the index from the alerts table
+    public synchronized void reload() throws SQLException {
+        // Read the version first: a change racing with the read shows up as a newer version
+        long version = AlertDAO.version();
+        List<Alert> alerts = AlertDAO.getAllAlerts();
+        index = buildIndex(alerts);
+        loadedVersion = version;
+        RELOADS.increment();
+    }
+
+    // Reload only when the table changed since the last load; returns whether it did
+    public boolean reloadIfChanged() throws SQLException {
+        if (AlertDAO.version() == loadedVersion) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    // Pick up alerts added or removed elsewhere (another window, the CLI) by polling
+    public synchronized void startAutoReload(Duration interval) {
+        if (reloader != null) return;
+        reloader = Executors.newSingleThreadScheduledExecutor(DaemonThreads.named("alert-reload"));
+        reloader.scheduleWithFixedDelay(() -> {
+            try {
+                reloadIfChanged();
+            } catch (SQLException | RuntimeException e) {
+                RELOAD_FAILURES.increment();
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+            reloader = null;
+        }
+    }
+
+    // Store a new alert and add it to the index
+    public Alert createAlert(long userId, String symbol, double targetPrice) throws SQLException {
+        long id = AlertDAO.insertAlert(userId, symbol, targetPrice);
+        Alert alert = new Alert(id, userId, symbol, targetPrice);
+        reloadSymbol(symbol, 1);
+        return alert;
+    }
+
+    public boolean deleteAlert(Alert alert) throws SQLException {
+        boolean deleted = AlertDAO.deleteAlert(alert.getId());
+        reloadSymbol(alert.getSymbol(), deleted ? 1 : 0);
+        return deleted;
+    }
+
+    // After our own write of `changes` rows, replace just that symbol's entry; the rest of the
+    // index is shared with the old snapshot. If anything else changed the table since the last
+    // load, patching one symbol would mark those changes as seen, so reload everything instead.
+    private synchronized void reloadSymbol(String symbol, int changes) throws SQLException {
+        long version = AlertDAO.version();
+        if (loadedVersion < 0 || version != loadedVersion + changes) {
+            reload();
+            return;
+        }
+        List<Alert> alerts = AlertDAO.getAlertsForSymbol(symbol);
+        Map<String, SymbolAlerts> updated = new HashMap<>(index);
+        if (alerts.isEmpty()) {
+            updated.remove(symbol.toUpperCase());
+        } else {
+            updated.put(symbol.toUpperCase(), new SymbolAlerts(alerts));
+        }
+        index = Collections.unmodifiableMap(updated);
+        loadedVersion = version;
+    }
+
+    // Tick path: check a quote or last trade price. Returns the number of alerts fired.
+    public int onPrice(String symbol, double price, LocalDateTime time) {
+        symbol = symbol.toUpperCase();
+        Double previous = lastPrices.put(symbol, price);
+        if (previous == null || previous == price) {
+            return 0;
+        }
+        SymbolAlerts alerts = index.get(symbol);
+        if (alerts == null) {
+            return 0;
+        }
+        int fired = 0;
+        if (price > previous) {
+            // Crossed above: previous < target <= price
+            int from = alerts.upperBound(previous);
+            int to = alerts.upperBound(price);
+            for (int i = from; i < to; i++, fired++) {
+                dispatch(new AlertEvent(alerts.alerts[i], Direction.CROSSED_ABOVE, previous, price, time));
+            }
+        } else {
+            // Crossed below: price <= target < previous, nearest target first
+            int from = alerts.lowerBound(price);
+            int to = alerts.lowerBound(previous);
+            for (int i = to - 1; i >= from; i--, fired++) {
+                dispatch(new AlertEvent(alerts.alerts[i], Direction.CROSSED_BELOW, previous, price, time));
+            }
+        }
+        return fired;
+    }
+
+    public int onQuote(String symbol, StockData quote) {
+        return onPrice(symbol, quote.getClose(), quote.getTimestamp());
+    }
+
+    // A daily bar moves the price to its close; intrabar touches are not reconstructed
+    public int onBar(String symbol, StockData bar) {
+        return onPrice(symbol, bar.getClose(), bar.getTimestamp());
+    }
+
+    public int alertCount() {
+        int count = 0;
+        for (SymbolAlerts alerts : index.values()) {
+            count += alerts.thresholds.length;
+        }
+        return count;
+    }
+
+    private void dispatch(AlertEvent event) {
+        listeners.dispatch(listener -> listener.onAlert(event));
+    }
+
+    private static Map<String, SymbolAlerts> buildIndex(List<Alert> alerts) {
+        Map<String, List<Alert>> bySymbol = new HashMap<>();
+        for (Alert alert : alerts) {
+            bySymbol.computeIfAbsent(alert.getSymbol().toUpperCase(), s -> new ArrayList<>()).add(alert);
+        }
+        Map<String, SymbolAlerts> built = new HashMap<>(bySymbol.size() * 2);
+        bySymbol.forEach((symbol, list) -> built.put(symbol, new SymbolAlerts(list)));
+        return Collections.unmodifiableMap(built);
+    }
+
+    // One symbol's alerts sorted by target price, with the targets in a primitive array
+    private static final class SymbolAlerts {
+        private final double[] thresholds;
+        private final Alert[] alerts;
+
+        SymbolAlerts(List<Alert> list) {
+            alerts = list.toArray(new Alert[0]);
+            Arrays.sort(alerts, Comparator.comparingDouble(Alert::getTargetPrice));
+            thresholds = new double[alerts.length];
+            for (int i = 0; i < alerts.length; i++) {
+                thresholds[i] = alerts[i].getTargetPrice();
+            }
+        }
+
+        // First target >= price
+        int lowerBound(double price) {
+            int low = 0;
+            int high = thresholds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (thresholds[mid] < price) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // First target > price
+        int upperBound(double price) {
+            int low = 0;
+            int high = thresholds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (thresholds[mid] <= price) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    public enum Direction { CROSSED_ABOVE, CROSSED_BELOW }
+
+    public static final class AlertEvent {
+        private final Alert alert;
+        private final Direction direction;
+        private final double previousPrice;
+        private final double price;
+        private final LocalDateTime time;
+
+        AlertEvent(Alert alert, Direction direction, double previousPrice, double price, LocalDateTime time) {
+            this.alert = alert;
+            this.direction = direction;
+            this.previousPrice = previousPrice;
+            this.price = price;
+            this.time = time;
+        }
+
+        public Alert getAlert() {
+            return alert;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        public double getPreviousPrice() {
+            return previousPrice;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %.2f (%.2f -> %.2f)", alert.getSymbol(),
+                    direction == Direction.CROSSED_ABOVE ? "crossed above" : "crossed below",
+                    alert.getTargetPrice(), previousPrice, price);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.stocktracker.service;
+
+import com.stocktracker.analytics.Resampler;
+import com.stocktracker.api.ApiClient;
+import com.stocktracker.api.MarketCalendar;
+import com.stocktracker.api.RateLimiter;
+import com.stocktracker.database.daos.StockDAO;
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
+import com.stocktracker.storage.BarStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Read-through access to daily bars: serve what stock_data already holds and only go to
+// the API for the sessions that are missing. Each step is exposed separately so callers
+// such as the fetch pipeline can report progress between them; load() runs them all.
+public class MarketDataService {
+    // Memory-mapped copy of stock_data for fast history reads; null reads SQLite directly
+    private static volatile BarStore barStore = openDefaultStore();
+    // Recently loaded windows, so switching back to a symbol or comparing a basket is instant
+    private static final SeriesCache seriesCache =
+            new SeriesCache(Long.getLong("stocktracker.seriesCache.maxBytes", 64L * 1024 * 1024));
+
+    // Rows written or revised by persist; unchanged re-fetched bars are not counted
+    private static final Counter ROWS_PERSISTED = Metrics.counter("series.rowsPersisted");
+    private static final Counter INTRADAY_ROWS_PERSISTED = Metrics.counter("intraday.rowsPersisted");
+    // Bar store failures; each one falls back to SQLite, so they cost speed, not data
+    private static final Counter STORE_READ_FAILURES = Metrics.counter("store.readFailures");
+    private static final Counter STORE_WRITE_FAILURES = Metrics.counter("store.writeFailures");
+    private static final Counter STORE_APPEND_FAILURES = Metrics.counter("store.appendFailures");
+    private static final Counter STORE_DELETE_FAILURES = Metrics.counter("store.deleteFailures");
+
+    static {
+        Metrics.gauge("store.enabled", () -> barStore == null ? 0 : 1);
+        Metrics.gauge("series.cache.hitRatio", () -> seriesCache.stats().hitRatio());
+        Metrics.gauge("series.cache.bytes", () -> seriesCache.stats().bytes);
+    }
+
+    // Stored bars plus whatever had to be fetched, oldest first
+    public static List<StockData> load(String symbol, int bars, RateLimiter.Priority priority)
+            throws IOException, SQLException {
+        List<StockData> stored = loadStored(symbol, bars);
+        DeltaPlan plan = planDelta(stored, bars, Instant.now());
+        if (plan.isUpToDate()) {
+            return stored;
+        }
+        List<StockData> fetched = fetchDelta(symbol, plan, priority);
+        persist(symbol, fetched);
+        return merge(stored, fetched, bars);
+    }
+
+    // Same as load, as columns, served from the series cache while no session has closed
+    // since it was filled
+    public static PriceSeries loadPrices(String symbol, int bars, RateLimiter.Priority priority)
+            throws IOException, SQLException {
+        PriceSeries cached = cachedPrices(symbol, bars, Instant.now());
+        if (cached != null) {
+            return cached;
+        }
+        PriceSeries loaded = PriceSeries.of(load(symbol, bars, priority));
+        seriesCache.put(symbol, loaded);
+        return loaded.slice(0, loaded.size());
+    }
+
+    // The cached window for the symbol if it is still up to date, otherwise null
+    public static PriceSeries cachedPrices(String symbol, int bars, Instant now) {
+        PriceSeries cached = seriesCache.get(symbol, bars);
+        if (cached == null || cached.isEmpty()) {
+            return null;
+        }
+        DeltaPlan plan = planDelta(cached.size(), cached.getTimestamp(cached.size() - 1), bars, now);
+        return plan.isUpToDate() ? cached : null;
+    }
+
+    // Remember a freshly loaded window, e.g. after the fetch pipeline merged one
+    public static void cachePrices(String symbol, List<StockData> bars) {
+        if (!bars.isEmpty()) {
+            seriesCache.put(symbol, PriceSeries.of(bars));
+        }
+    }
+
+    public static SeriesCache.Stats seriesCacheStats() {
+        return seriesCache.stats();
+    }
+
+    // The most recent bars already in the database, oldest first
+    public static List<StockData> loadStored(String symbol, int bars) throws SQLException {
+        return loadStoredPrices(symbol, bars).toList();
+    }
+
+    // Same as loadStored, as columns. Served from the bar store when it has the symbol;
+    // otherwise the full history is read from stock_data once and written to the store.
+    public static PriceSeries loadStoredPrices(String symbol, int bars) throws SQLException {
+        BarStore store = barStore;
+        if (store == null) {
+            return StockDAO.getPriceSeries(symbol, bars);
+        }
+        try {
+            PriceSeries stored = store.readLast(symbol, bars);
+            if (stored != null) {
+                return stored;
+            }
+        } catch (IOException e) {
+            STORE_READ_FAILURES.increment();
+            return StockDAO.getPriceSeries(symbol, bars);
+        }
+
+        PriceSeries history = StockDAO.getPriceSeries(StockDAO.HistoryQuery.forSymbol(symbol));
+        if (!history.isEmpty()) {
+            try {
+                store.write(symbol, history);
+            } catch (IOException e) {
+                STORE_WRITE_FAILURES.increment();
+            }
+        }
+        return history.slice(Math.max(0, history.size() - bars), history.size());
+    }
+
+    // Work out which bars are missing between the newest stored bar and the last closed session
+    public static DeltaPlan planDelta(List<StockData> stored, int bars, Instant now) {
+        return planDelta(stored.size(), stored.isEmpty() ? null : stored.get(stored.size() - 1).getTimestamp(),
+                bars, now);
+    }
+
+    // Same, from the number of stored bars and the newest one's time
+    public static DeltaPlan planDelta(int storedBars, LocalDateTime newest, int bars, Instant now) {
+        LocalDate lastSession = MarketCalendar.lastCompletedSession(now);
+        if (storedBars == 0) {
+            return coldStart(bars, lastSession);
+        }
+
+        LocalDate newestDate = newest.toLocalDate();
+        if (!newestDate.isBefore(lastSession)) {
+            return DeltaPlan.UP_TO_DATE;
+        }
+        int missing = MarketCalendar.tradingDaysBetween(newestDate, lastSession);
+        if (missing == 0) {
+            return DeltaPlan.UP_TO_DATE;
+        }
+        if (missing >= bars) {
+            // Everything stored is older than the window: reload the window instead of the gap
+            return coldStart(bars, lastSession);
+        }
+        if (storedBars + missing < bars) {
+            // The window stays short even with the gap filled, e.g. a long chart over a history
+            // stored through compact responses. The call is due anyway, so ask for the window.
+            return coldStart(bars, lastSession);
+        }
+        // One bar extra re-reads the newest stored bar in case it was revised. A short stored
+        // history (e.g. a new listing) is topped up like any other; it has nothing older to fetch.
+        return new DeltaPlan(ApiClient.OutputSize.forBars(missing + 1), missing + 1, newest, lastSession);
+    }
+
+    // One request for the whole window. A compact response holds COMPACT_BARS bars whatever
+    // the window, so all of them are kept and a later, wider window finds them stored.
+    private static DeltaPlan coldStart(int bars, LocalDate lastSession) {
+        ApiClient.OutputSize size = ApiClient.OutputSize.forBars(bars);
+        int maxBars = size == ApiClient.OutputSize.COMPACT ? ApiClient.OutputSize.COMPACT_BARS : bars;
+        return new DeltaPlan(size, maxBars, null, lastSession);
+    }
+
+    // Fetch the planned bars; the parser stops reading the response once it has enough.
+    // The bar of a session still trading is left out: it would be stored as that day's close
+    // and, with the session's date already stored, never re-read once the session closes.
+    public static List<StockData> fetchDelta(String symbol, DeltaPlan plan, RateLimiter.Priority priority)
+            throws IOException {
+        if (plan.isUpToDate()) {
+            return List.of();
+        }
+        List<StockData> fetched = ApiClient.fetchDailySeries(symbol, plan.maxBars, plan.size, priority);
+        List<StockData> delta = new ArrayList<>(fetched.size());
+        for (StockData bar : fetched) {
+            LocalDateTime time = bar.getTimestamp();
+            // Keep the newest stored bar too: its values may have been revised
+            if ((plan.after == null || !time.isBefore(plan.after))
+                    && !time.toLocalDate().isAfter(plan.through)) {
+                delta.add(bar);
+            }
+        }
+        delta.sort(Comparator.comparing(StockData::getTimestamp));
+        return delta;
+    }
+
+    public static void persist(String symbol, List<StockData> bars) throws SQLException {
+        if (bars.isEmpty()) {
+            return;
+        }
+        StockDAO.InsertResult result = StockDAO.insertStockData(symbol, bars);
+        ROWS_PERSISTED.add(result.getRowsWritten());
+        seriesCache.invalidate(symbol);
+
+        // Keep the bar store in step; if that fails, drop the file so it is rebuilt from SQLite
+        BarStore store = barStore;
+        if (store != null) {
+            try {
+                store.append(symbol, PriceSeries.of(bars));
+            } catch (IOException | RuntimeException e) {
+                STORE_APPEND_FAILURES.increment();
+                try {
+                    store.delete(symbol);
+                } catch (IOException ignored) {
+                    // The next read revalidates the file anyway
+                }
+            }
+        }
+    }
+
+    // Intraday bars at the given interval over the last `sessions` trading days, oldest first.
+    // Only 1-minute bars are fetched and stored; every coarser interval is resampled from them.
+    public static PriceSeries loadIntraday(String symbol, Resampler.Interval interval, Resampler.Session session,
+                                           int sessions, RateLimiter.Priority priority)
+            throws IOException, SQLException {
+        return Resampler.resample(loadIntradayMinutes(symbol, sessions, priority), interval, session);
+    }
+
+    // Stored 1-minute bars, topped up from the API when a newer minute has completed since
+    public static PriceSeries loadIntradayMinutes(String symbol, int sessions, RateLimiter.Priority priority)
+            throws IOException, SQLException {
+        LocalDateTime latest = MarketCalendar.lastCompletedMinuteBar(Instant.now());
+        LocalDate firstSession = latest.toLocalDate();
+        for (int i = 1; i < sessions; i++) {
+            firstSession = MarketCalendar.previousTradingDay(firstSession);
+        }
+        long from = firstSession.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        PriceSeries stored = StockDAO.getPriceSeries(StockDAO.HistoryQuery.forSymbol(symbol).intraday()
+                .from(firstSession.atStartOfDay()));
+        LocalDateTime newest = stored.isEmpty() ? null : stored.getTimestamp(stored.size() - 1);
+        if (newest != null && !newest.isBefore(latest)) {
+            return stored;
+        }
+
+        // Compact covers the last 100 minutes; anything older needs the full month. Thinly
+        // traded symbols may look behind on every call, but the response cache holds each
+        // response until the next minute completes.
+        boolean compact = newest != null && newest.toLocalDate().equals(latest.toLocalDate())
+                && Duration.between(newest, latest).toMinutes() < ApiClient.OutputSize.COMPACT_BARS;
+        PriceSeries fetched = ApiClient.fetchIntradayPrices(symbol, Integer.MAX_VALUE,
+                compact ? ApiClient.OutputSize.COMPACT : ApiClient.OutputSize.FULL, priority);
+        // Keep the newest stored minute too: it may have been revised
+        long after = newest == null ? from : newest.toEpochSecond(ZoneOffset.UTC);
+        PriceSeries delta = fetched.slice(fetched.lowerBound(after), fetched.size());
+        if (delta.isEmpty()) {
+            return stored;
+        }
+        StockDAO.InsertResult result = StockDAO.insertIntradayData(symbol, delta);
+        INTRADAY_ROWS_PERSISTED.add(result.getRowsWritten());
+
+        int keep = stored.lowerBound(delta.getTime(0));
+        PriceSeries merged = new PriceSeries(keep + delta.size());
+        appendAll(merged, stored.slice(0, keep));
+        appendAll(merged, delta);
+        return merged;
+    }
+
+    // Store every 1-minute bar of a past month, e.g. to extend history beyond the trailing
+    // month a full intraday response covers
+    public static int backfillIntraday(String symbol, YearMonth month, RateLimiter.Priority priority)
+            throws IOException, SQLException {
+        PriceSeries fetched = ApiClient.fetchIntradayPrices(symbol, month, priority);
+        if (fetched.isEmpty()) {
+            return 0;
+        }
+        StockDAO.InsertResult result = StockDAO.insertIntradayData(symbol, fetched);
+        INTRADAY_ROWS_PERSISTED.add(result.getRowsWritten());
+        return result.getRowsWritten();
+    }
+
+    private static void appendAll(PriceSeries target, PriceSeries bars) {
+        PriceSeries.Cursor cursor = bars.cursor();
+        while (cursor.next()) {
+            target.append(cursor.getTime(), cursor.getOpen(), cursor.getHigh(), cursor.getLow(),
+                    cursor.getClose(), cursor.getVolume());
+        }
+    }
+
+    // Forget everything derived from stock_data for the symbol after it was written behind
+    // our back (e.g. a CSV import); the bar store file is rebuilt on the next read
+    public static void invalidate(String symbol) {
+        seriesCache.invalidate(symbol);
+        BarStore store = barStore;
+        if (store != null) {
+            try {
+                store.delete(symbol);
+            } catch (IOException e) {
+                STORE_DELETE_FAILURES.increment();
+            }
+        }
+    }
+
+    // Use a different bar store (e.g. on a faster disk); null reads SQLite directly
+    public static void setBarStore(BarStore store) {
+        barStore = store;
+    }
+
+    private static BarStore openDefaultStore() {
+        Path directory = Path.of(System.getProperty("stocktracker.store.dir", "bar-store"));
+        try {
+            return new BarStore(directory);
+        } catch (IOException e) {
+            // Reported by the store.enabled gauge
+            return null;
+        }
+    }
+
+    // Combine two oldest-first lists, preferring fetched values, and keep the newest bars
+    public static List<StockData> merge(List<StockData> stored, List<StockData> fetched, int bars) {
+        if (fetched.isEmpty()) {
+            return stored;
+        }
+        List<StockData> merged = new ArrayList<>(stored.size() + fetched.size());
+        LocalDateTime firstFetched = fetched.get(0).getTimestamp();
+        for (StockData bar : stored) {
+            if (bar.getTimestamp().isBefore(firstFetched)) {
+                merged.add(bar);
+            }
+        }
+        merged.addAll(fetched);
+        return merged.size() > bars
+                ? new ArrayList<>(merged.subList(merged.size() - bars, merged.size()))
+                : merged;
+    }
+
+    // What to request from the API to bring a symbol up to date
+    public static final class DeltaPlan {
+        static final DeltaPlan UP_TO_DATE = new DeltaPlan(null, 0, null, null);
+
+        private final ApiClient.OutputSize size;
+        private final int maxBars;
+        private final LocalDateTime after;
+        // Last closed session; fetched bars dated later are still forming
+        private final LocalDate through;
+
+        DeltaPlan(ApiClient.OutputSize size, int maxBars, LocalDateTime after, LocalDate through) {
+            this.size = size;
+            this.maxBars = maxBars;
+            this.after = after;
+            this.through = through;
+        }
+
+        public boolean isUpToDate() {
+            return maxBars == 0;
+        }
+
+        public ApiClient.OutputSize getSize() {
+            return size;
+        }
+
+        public int getMaxBars() {
+            return maxBars;
+        }
+
+        @Override
+        public String toString() {
+            return isUpToDate() ? "up to date"
+                    : String.format("fetch %d bars (%s)%s", maxBars, size,
+                    after == null ? "" : " from " + after.toLocalDate());
+        }
+    }
+}
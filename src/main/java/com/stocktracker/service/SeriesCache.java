@@ -0,0 +1,126 @@
+package com.stocktracker.service;
+
+import com.stocktracker.models.PriceSeries;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-memory LRU of loaded price series, bounded by the bytes their columns take rather than
+// by entry count, so a few full histories and many short windows share the same budget.
+// Series handed out are read-only slices; the cache owns the columns.
+public class SeriesCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, PriceSeries> index = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    // Metrics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SeriesCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // The newest bars of the cached series, or null if it is missing or shorter than asked
+    public synchronized PriceSeries get(String symbol, int bars) {
+        PriceSeries series = index.get(symbol.toUpperCase());
+        if (series == null || series.size() < bars) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return series.slice(series.size() - bars, series.size());
+    }
+
+    // Cache the series under the symbol. It should not be changed afterwards; a series larger
+    // than the whole budget is not cached. A shorter window that is no newer than the cached
+    // series is already covered by it, so the longer one is kept; otherwise callers asking
+    // for different window sizes would keep evicting each other.
+    public synchronized void put(String symbol, PriceSeries series) {
+        String key = symbol.toUpperCase();
+        PriceSeries current = index.get(key);
+        if (current != null && covers(current, series)) {
+            return;
+        }
+        remove(key);
+        long size = series.sizeInBytes();
+        if (size > maxBytes) {
+            return;
+        }
+        index.put(key, series);
+        totalBytes += size;
+        evictToSize();
+    }
+
+    public synchronized void invalidate(String symbol) {
+        remove(symbol.toUpperCase());
+    }
+
+    public synchronized void clear() {
+        index.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(index.size(), totalBytes, maxBytes, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private static boolean covers(PriceSeries current, PriceSeries series) {
+        if (series.isEmpty()) {
+            return true;
+        }
+        return !current.isEmpty() && current.size() >= series.size()
+                && current.getTime(current.size() - 1) >= series.getTime(series.size() - 1);
+    }
+
+    // Drop least recently used series until the budget is met
+    private void evictToSize() {
+        Iterator<Map.Entry<String, PriceSeries>> eldest = index.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            PriceSeries series = eldest.next().getValue();
+            eldest.remove();
+            totalBytes -= series.sizeInBytes();
+            evictions.increment();
+        }
+    }
+
+    private void remove(String key) {
+        PriceSeries series = index.remove(key);
+        if (series != null) {
+            totalBytes -= series.sizeInBytes();
+        }
+    }
+
+    // Point-in-time snapshot of cache metrics
+    public static final class Stats {
+        public final int entries;
+        public final long bytes;
+        public final long maxBytes;
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+
+        Stats(int entries, long bytes, long maxBytes, long hits, long misses, long evictions) {
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public double hitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("series cache: %d series, %d/%d KiB, %d hits, %d misses (%.0f%% hit), %d evicted",
+                    entries, bytes / 1024, maxBytes / 1024, hits, misses, hitRatio() * 100, evictions);
+        }
+    }
+}
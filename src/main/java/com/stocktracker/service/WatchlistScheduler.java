@@ -0,0 +1,518 @@
+package com.stocktracker.service;
+
+import com.stocktracker.api.ApiClient;
+import com.stocktracker.api.RateLimiter;
+import com.stocktracker.database.daos.WatchlistDAO;
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.StockData;
+import com.stocktracker.util.Listeners;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Keeps the watchlist fresh in the background: quotes and daily bars are refreshed on their
+// own intervals. Daily bars are saved through MarketDataService; quotes only go to the alert
+// engine and the listeners. Calls are paced one slot at a time across the API budget, so the
+// quota is used steadily instead of in bursts that trip the provider's limit. Each slot goes
+// to the most overdue job, symbols on screen first. Failures back off per symbol with
+// jitter; a rate limit answer pauses the whole scheduler.
+public class WatchlistScheduler {
+    public enum Job { QUOTE, SERIES }
+
+    private static final Counter CALLS = Metrics.counter("watchlist.calls");
+    private static final Counter SERIES_UP_TO_DATE = Metrics.counter("watchlist.seriesUpToDate");
+    private static final Counter QUOTE_FAILURES = Metrics.counter("watchlist.quoteFailures");
+    private static final Counter SERIES_FAILURES = Metrics.counter("watchlist.seriesFailures");
+    private static final Counter RATE_LIMIT_PAUSES = Metrics.counter("watchlist.rateLimitPauses");
+
+    // How long stop() waits for a refresh in progress, e.g. a persist, to finish
+    private static final long STOP_TIMEOUT_MS = 5_000;
+
+    // Callbacks are handed to the executor given with the listener, e.g. Platform::runLater
+    public interface Listener {
+        default void onQuote(String symbol, StockData quote) {
+        }
+
+        default void onSeries(String symbol, List<StockData> bars) {
+        }
+
+        default void onFailure(String symbol, Job job, Exception error) {
+        }
+    }
+
+    private final Config config;
+    private final AlertEngine alerts;
+    private final long slotNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // Keyed by upper-case symbol, in watchlist order
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Set<String> onScreen = new HashSet<>();
+    private long nextSlotAt = System.nanoTime();
+    private Thread worker;
+    private volatile boolean running;
+
+    private final Listeners<Listener> listeners = new Listeners<>();
+
+    // alerts may be null; otherwise every refreshed price is checked against it
+    public WatchlistScheduler(Config config, AlertEngine alerts) {
+        this.config = config;
+        this.alerts = alerts;
+        this.slotNanos = TimeUnit.MINUTES.toNanos(1) / config.callsPerMinute;
+    }
+
+    public void addListener(Listener listener, Executor executor) {
+        listeners.add(listener, executor);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Load the stored watchlist (unless the config keeps it in memory) and start refreshing it
+    public void start() throws SQLException {
+        List<String> symbols = config.persistWatchlist ? WatchlistDAO.getSymbols() : List.of();
+        lock.lock();
+        try {
+            if (worker != null) {
+                return;
+            }
+            long now = System.nanoTime();
+            for (String symbol : symbols) {
+                entries.putIfAbsent(symbol.toUpperCase(), new Entry(symbol.toUpperCase(), now));
+            }
+            running = true;
+            worker = new Thread(this::run, "watchlist-refresh");
+            worker.setDaemon(true);
+            worker.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns once the worker has exited or the timeout passed, so callers can close the
+    // database behind it
+    public void stop() {
+        Thread stopping;
+        lock.lock();
+        try {
+            running = false;
+            stopping = worker;
+            worker = null;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (stopping != null) {
+            // Also abandons a call waiting in the rate limiter queue
+            stopping.interrupt();
+            try {
+                stopping.join(STOP_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Store the symbol and refresh it as soon as a slot is free. Returns whether it was new
+    // to the stored watchlist, or to this scheduler when the watchlist is kept in memory.
+    public boolean add(String symbol) throws SQLException {
+        boolean stored = config.persistWatchlist && WatchlistDAO.addSymbol(symbol);
+        String key = symbol.toUpperCase();
+        boolean added;
+        lock.lock();
+        try {
+            added = !entries.containsKey(key);
+            if (added) {
+                entries.put(key, new Entry(key, System.nanoTime()));
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return config.persistWatchlist ? stored : added;
+    }
+
+    public boolean remove(String symbol) throws SQLException {
+        boolean stored = config.persistWatchlist && WatchlistDAO.removeSymbol(symbol);
+        boolean removed;
+        lock.lock();
+        try {
+            removed = entries.remove(symbol.toUpperCase()) != null;
+        } finally {
+            lock.unlock();
+        }
+        return config.persistWatchlist ? stored : removed;
+    }
+
+    public List<String> getSymbols() {
+        lock.lock();
+        try {
+            return List.copyOf(entries.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Symbols the user is looking at: they win every slot they are due for and their
+    // quotes are refreshed on the shorter on-screen interval
+    public void setOnScreen(Collection<String> symbols) {
+        lock.lock();
+        try {
+            onScreen.clear();
+            for (String symbol : symbols) {
+                String key = symbol.toUpperCase();
+                onScreen.add(key);
+                Entry entry = entries.get(key);
+                if (entry != null && entry.failures == 0) {
+                    entry.quoteDue = Math.min(entry.quoteDue, entry.quotedAt + config.onScreenQuoteInterval.toNanos());
+                }
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            Task task;
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                long wait = nextSlotAt - now;
+                task = wait > 0 ? null : nextDue(now);
+                if (task == null) {
+                    if (wait <= 0) {
+                        wait = earliestDue(now) - now;
+                    }
+                    changed.awaitNanos(Math.max(wait, 1));
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                lock.unlock();
+            }
+
+            long started = System.nanoTime();
+            boolean called = refresh(task);
+            lock.lock();
+            try {
+                // The next slot is one interval after this call started; a call that had to
+                // queue behind interactive requests in the limiter pushes it back further
+                if (called) {
+                    nextSlotAt = Math.max(nextSlotAt, Math.max(started + slotNanos, System.nanoTime()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Most urgent due job: symbols on screen first, then whichever has been due the longest.
+    // A linear scan is fine at one pick per slot.
+    private Task nextDue(long now) {
+        Task best = null;
+        for (Entry entry : entries.values()) {
+            boolean visible = onScreen.contains(entry.symbol);
+            best = better(best, entry, Job.SERIES, entry.seriesDue, visible, now);
+            if (quotesEnabled()) {
+                best = better(best, entry, Job.QUOTE, entry.quoteDue, visible, now);
+            }
+        }
+        return best;
+    }
+
+    private static Task better(Task best, Entry entry, Job job, long due, boolean visible, long now) {
+        if (due > now) {
+            return best;
+        }
+        if (best == null || (visible && !best.visible) || (visible == best.visible && due < best.due)) {
+            return new Task(entry, job, due, visible);
+        }
+        return best;
+    }
+
+    private long earliestDue(long now) {
+        long earliest = now + TimeUnit.MINUTES.toNanos(1);
+        for (Entry entry : entries.values()) {
+            long due = quotesEnabled() ? Math.min(entry.quoteDue, entry.seriesDue) : entry.seriesDue;
+            earliest = Math.min(earliest, due);
+        }
+        return earliest;
+    }
+
+    private boolean quotesEnabled() {
+        return !config.quoteInterval.isZero();
+    }
+
+    // Runs on the worker thread without the lock; returns whether an API call was made
+    private boolean refresh(Task task) {
+        String symbol = task.entry.symbol;
+        try {
+            boolean called = task.job == Job.QUOTE ? refreshQuote(symbol) : refreshSeries(symbol);
+            succeeded(task);
+            return called;
+        } catch (IOException | SQLException | RuntimeException e) {
+            if (Thread.currentThread().isInterrupted() || !running) {
+                return false;
+            }
+            failed(task, e);
+            listeners.dispatch(listener -> listener.onFailure(symbol, task.job, e));
+            return true;
+        }
+    }
+
+    private boolean refreshQuote(String symbol) throws IOException, SQLException {
+        StockData quote = ApiClient.getGlobalQuote(symbol, RateLimiter.Priority.BACKGROUND);
+        CALLS.increment();
+        // Not persisted: the quote is the session's bar so far and stock_data only keeps
+        // completed sessions, which the series refresh fetches once the session has closed
+        if (alerts != null) {
+            alerts.onQuote(symbol, quote);
+        }
+        listeners.dispatch(listener -> listener.onQuote(symbol, quote));
+        return true;
+    }
+
+    // Daily bars only change when a session closes; most refreshes find nothing missing
+    // and give their slot to the next job without calling the API
+    private boolean refreshSeries(String symbol) throws IOException, SQLException {
+        List<StockData> stored = MarketDataService.loadStored(symbol, config.seriesBars);
+        MarketDataService.DeltaPlan plan = MarketDataService.planDelta(stored, config.seriesBars, Instant.now());
+        if (plan.isUpToDate()) {
+            SERIES_UP_TO_DATE.increment();
+            return false;
+        }
+        List<StockData> fetched = MarketDataService.fetchDelta(symbol, plan, RateLimiter.Priority.BACKGROUND);
+        CALLS.increment();
+        MarketDataService.persist(symbol, fetched);
+        List<StockData> bars = MarketDataService.merge(stored, fetched, config.seriesBars);
+        if (alerts != null && !bars.isEmpty()) {
+            alerts.onBar(symbol, bars.get(bars.size() - 1));
+        }
+        listeners.dispatch(listener -> listener.onSeries(symbol, bars));
+        return true;
+    }
+
+    private void succeeded(Task task) {
+        lock.lock();
+        try {
+            Entry entry = task.entry;
+            long now = System.nanoTime();
+            entry.failures = 0;
+            if (task.job == Job.QUOTE) {
+                entry.quotedAt = now;
+                entry.quoteDue = now + (onScreen.contains(entry.symbol)
+                        ? config.onScreenQuoteInterval : config.quoteInterval).toNanos();
+            } else {
+                entry.seriesDue = now + config.seriesInterval.toNanos();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void failed(Task task, Exception error) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            String message = String.valueOf(error.getMessage());
+            if (message.contains("Rate Limit")) {
+                // Someone else is spending our quota: stop everything until the bucket refills.
+                // The job keeps its place and runs in the first slot after the pause.
+                ApiClient.reportRateLimited();
+                nextSlotAt = Math.max(nextSlotAt, now + jittered(config.rateLimitPause.toNanos()));
+                RATE_LIMIT_PAUSES.increment();
+                return;
+            }
+            Entry entry = task.entry;
+            entry.failures++;
+            long delay = jittered(backoffNanos(entry.failures));
+            if (task.job == Job.QUOTE) {
+                entry.quoteDue = now + delay;
+            } else {
+                entry.seriesDue = now + delay;
+            }
+            (task.job == Job.QUOTE ? QUOTE_FAILURES : SERIES_FAILURES).increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Exponential backoff from the base delay, capped
+    private long backoffNanos(int failures) {
+        long base = config.retryBase.toNanos();
+        long max = config.retryMax.toNanos();
+        int doublings = Math.min(failures - 1, 30);
+        return base > (max >> doublings) ? max : Math.min(max, base << doublings);
+    }
+
+    // Somewhere between half and all of the delay, so symbols that failed together
+    // (e.g. during an outage) don't all retry in the same slot
+    private static long jittered(long nanos) {
+        long half = nanos / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    public Stats stats() {
+        int symbols;
+        int backingOff = 0;
+        lock.lock();
+        try {
+            symbols = entries.size();
+            for (Entry entry : entries.values()) {
+                if (entry.failures > 0) {
+                    backingOff++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        long rateLimited = RATE_LIMIT_PAUSES.get();
+        return new Stats(symbols, backingOff, CALLS.get(), SERIES_UP_TO_DATE.get(),
+                QUOTE_FAILURES.get() + SERIES_FAILURES.get() + rateLimited, rateLimited);
+    }
+
+    // Refresh state of one watched symbol; guarded by the scheduler lock
+    private static final class Entry {
+        private final String symbol;
+        private long quoteDue;
+        private long seriesDue;
+        private long quotedAt;
+        private int failures;
+
+        Entry(String symbol, long now) {
+            this.symbol = symbol;
+            this.quoteDue = now;
+            this.seriesDue = now;
+            this.quotedAt = now - TimeUnit.DAYS.toNanos(1);
+        }
+    }
+
+    private static final class Task {
+        private final Entry entry;
+        private final Job job;
+        private final long due;
+        private final boolean visible;
+
+        Task(Entry entry, Job job, long due, boolean visible) {
+            this.entry = entry;
+            this.job = job;
+            this.due = due;
+            this.visible = visible;
+        }
+    }
+
+    // Refresh intervals and pacing. Defaults spend the whole API budget; interactive
+    // requests still go first because the scheduler queues as BACKGROUND.
+    public static final class Config {
+        private int callsPerMinute = ApiClient.getCallsPerMinute();
+        private Duration quoteInterval = Duration.ofMinutes(15);
+        private Duration onScreenQuoteInterval = Duration.ofMinutes(1);
+        private Duration seriesInterval = Duration.ofHours(1);
+        private int seriesBars = ApiClient.DEFAULT_BARS;
+        private Duration retryBase = Duration.ofSeconds(30);
+        private Duration retryMax = Duration.ofMinutes(30);
+        private Duration rateLimitPause = Duration.ofMinutes(1);
+        private boolean persistWatchlist = true;
+
+        public Config callsPerMinute(int callsPerMinute) {
+            if (callsPerMinute < 1) {
+                throw new IllegalArgumentException("Calls per minute must be positive: " + callsPerMinute);
+            }
+            this.callsPerMinute = callsPerMinute;
+            return this;
+        }
+
+        // Duration.ZERO turns quote refreshes off, e.g. on an ingest box that only keeps daily bars
+        public Config quoteInterval(Duration quoteInterval) {
+            this.quoteInterval = quoteInterval;
+            return this;
+        }
+
+        public Config onScreenQuoteInterval(Duration onScreenQuoteInterval) {
+            this.onScreenQuoteInterval = onScreenQuoteInterval;
+            return this;
+        }
+
+        // How often to check for newly closed sessions; checks that find none are free but still
+        // read the database, so the interval must be positive
+        public Config seriesInterval(Duration seriesInterval) {
+            if (seriesInterval.isNegative() || seriesInterval.isZero()) {
+                throw new IllegalArgumentException("Series interval must be positive: " + seriesInterval);
+            }
+            this.seriesInterval = seriesInterval;
+            return this;
+        }
+
+        public Config seriesBars(int seriesBars) {
+            this.seriesBars = seriesBars;
+            return this;
+        }
+
+        public Config retryBase(Duration retryBase) {
+            this.retryBase = retryBase;
+            return this;
+        }
+
+        public Config retryMax(Duration retryMax) {
+            this.retryMax = retryMax;
+            return this;
+        }
+
+        public Config rateLimitPause(Duration rateLimitPause) {
+            this.rateLimitPause = rateLimitPause;
+            return this;
+        }
+
+        // false keeps the symbols in memory: start() loads nothing and add/remove leave the
+        // watchlist table alone, for callers that bring their own list
+        public Config persistWatchlist(boolean persistWatchlist) {
+            this.persistWatchlist = persistWatchlist;
+            return this;
+        }
+    }
+
+    // Point-in-time snapshot of scheduler metrics. The counts come from the process-wide
+    // watchlist.* counters.
+    public static final class Stats {
+        public final int symbols;
+        public final int backingOff;
+        public final long calls;
+        public final long upToDate;
+        public final long failures;
+        public final long rateLimited;
+
+        Stats(int symbols, int backingOff, long calls, long upToDate, long failures, long rateLimited) {
+            this.symbols = symbols;
+            this.backingOff = backingOff;
+            this.calls = calls;
+            this.upToDate = upToDate;
+            this.failures = failures;
+            this.rateLimited = rateLimited;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("watchlist: %d symbols (%d backing off), %d calls, %d series up to date, "
+                    + "%d failures (%d rate limited)", symbols, backingOff, calls, upToDate, failures, rateLimited);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.stocktracker.storage;
+
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Bars as CSV: a "timestamp,open,high,low,close,volume" header, then one bar per line.
+// Daily bars are written with the date only, intraday bars as "yyyy-MM-dd HH:mm:ss" like
+// the API; reading accepts either, with a 'T' or a space before the time.
+public final class BarCsv {
+    public static final String HEADER = "timestamp,open,high,low,close,volume";
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private BarCsv() {
+    }
+
+    public static void write(PriceSeries bars, boolean intraday, Writer out) throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+        PriceSeries.Cursor cursor = bars.cursor();
+        StringBuilder line = new StringBuilder(80);
+        while (cursor.next()) {
+            LocalDateTime time = StockData.fromEpochSecond(cursor.getTime());
+            line.setLength(0);
+            line.append(intraday ? DATE_TIME.format(time) : time.toLocalDate().toString())
+                    .append(',').append(formatPrice(cursor.getOpen()))
+                    .append(',').append(formatPrice(cursor.getHigh()))
+                    .append(',').append(formatPrice(cursor.getLow()))
+                    .append(',').append(formatPrice(cursor.getClose()))
+                    .append(',').append(cursor.getVolume())
+                    .append('\n');
+            out.append(line);
+        }
+    }
+
+    // Lazily parse bars in file order. Malformed lines fail with their line number; an
+    // IOException from the reader surfaces as UncheckedIOException. Closing the stream
+    // closes the reader.
+    public static Stream<StockData> read(BufferedReader in) {
+        Spliterator<StockData> spliterator = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int lineNumber;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super StockData> action) {
+                try {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        lineNumber++;
+                        line = line.trim();
+                        if (line.isEmpty() || (lineNumber == 1 && isHeader(line))) {
+                            continue;
+                        }
+                        action.accept(parseLine(line, lineNumber));
+                        return true;
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // A date, or a date and time; the time of a daily bar is midnight
+    public static LocalDateTime parseTimestamp(String text) {
+        String value = text.trim();
+        if (value.length() == 10) {
+            return LocalDate.parse(value).atStartOfDay();
+        }
+        return LocalDateTime.parse(value.replace(' ', 'T'));
+    }
+
+    private static boolean isHeader(String line) {
+        return line.toLowerCase(Locale.ROOT).startsWith("timestamp");
+    }
+
+    private static StockData parseLine(String line, int lineNumber) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 6) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected 6 fields, found "
+                    + fields.length + ": " + line);
+        }
+        try {
+            return new StockData(parseTimestamp(fields[0]),
+                    Double.parseDouble(fields[1].trim()),
+                    Double.parseDouble(fields[2].trim()),
+                    Double.parseDouble(fields[3].trim()),
+                    Double.parseDouble(fields[4].trim()),
+                    Long.parseLong(fields[5].trim()));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Shortest digits that read back to the same double, never in exponent form
+    private static String formatPrice(double price) {
+        return BigDecimal.valueOf(price).stripTrailingZeros().toPlainString();
+    }
+}
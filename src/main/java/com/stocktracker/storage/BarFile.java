@@ -0,0 +1,273 @@
+package com.stocktracker.storage;
+
+import com.stocktracker.models.PriceSeries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// One symbol's bars in a flat binary file, read through a memory mapping:
+//   header   16 bytes: magic "STKB", format version, record size, index interval
+//   records  48 bytes each, oldest first: time (epoch s), open, high, low, close, volume
+//   index    time of every INDEX_INTERVAL-th record, for range seeks
+//   trailer  20 bytes: record count, CRC32 of everything before the trailer, magic "STKF"
+// An append writes its records over the old index and trailer and then writes both again,
+// so a crash part way through leaves a file whose trailer is missing or whose checksum
+// fails. Such files are rejected on open rather than read.
+final class BarFile {
+    private static final int MAGIC = 0x53544B42; // "STKB"
+    private static final int TRAILER_MAGIC = 0x53544B46; // "STKF"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 48;
+    static final int TRAILER_SIZE = 20;
+    static final int INDEX_INTERVAL = 64;
+
+    private final ByteBuffer map;
+    private final int count;
+    private final long indexOffset;
+
+    private BarFile(ByteBuffer map, int count) {
+        this.map = map;
+        this.count = count;
+        this.indexOffset = recordOffset(count);
+    }
+
+    // Map a file and check its structure; verify also checks the CRC, which reads every page
+    static BarFile open(Path path, boolean verify) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                throw new CorruptBarFileException(path, "unexpected size " + size);
+            }
+            // The mapping stays valid after the channel is closed
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        int size = map.capacity();
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION
+                || map.getInt(8) != RECORD_SIZE || map.getInt(12) != INDEX_INTERVAL) {
+            throw new CorruptBarFileException(path, "bad header");
+        }
+        int trailer = size - TRAILER_SIZE;
+        if (map.getInt(trailer + 16) != TRAILER_MAGIC) {
+            throw new CorruptBarFileException(path, "missing trailer");
+        }
+        long count = map.getLong(trailer);
+        if (count < 0 || fileSize(count) != size) {
+            throw new CorruptBarFileException(path, count + " records do not fit " + size + " bytes");
+        }
+        if (verify) {
+            CRC32 crc = new CRC32();
+            crc.update(map.duplicate().position(0).limit(trailer));
+            if (crc.getValue() != map.getLong(trailer + 8)) {
+                throw new CorruptBarFileException(path, "checksum mismatch");
+            }
+        }
+        return new BarFile(map, (int) count);
+    }
+
+    int size() {
+        return count;
+    }
+
+    long timeAt(int i) {
+        return map.getLong((int) recordOffset(i));
+    }
+
+    // First record at or after the time (size() if there is none): a binary search over the
+    // sparse index, then one within the block of INDEX_INTERVAL records it points at
+    int lowerBound(long time) {
+        int lo = 0;
+        int hi = indexEntries(count);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (map.getLong((int) (indexOffset + (long) mid * Long.BYTES)) < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        // Every record before block lo - 1 is earlier; block lo starts at or after the time
+        int from = lo == 0 ? 0 : (lo - 1) * INDEX_INTERVAL;
+        int to = Math.min(count, lo * INDEX_INTERVAL);
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (timeAt(mid) < time) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // Copy records [from, to) out of the mapping
+    PriceSeries read(int from, int to) {
+        PriceSeries bars = new PriceSeries(Math.max(to - from, 1));
+        for (int i = from; i < to; i++) {
+            int offset = (int) recordOffset(i);
+            bars.append(map.getLong(offset), map.getDouble(offset + 8), map.getDouble(offset + 16),
+                    map.getDouble(offset + 24), map.getDouble(offset + 32), map.getLong(offset + 40));
+        }
+        return bars;
+    }
+
+    // Write a complete file next to the target and move it into place
+    static void write(Path path, PriceSeries bars) throws IOException {
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                Writer writer = new Writer(channel, 0, new CRC32());
+                writer.putInt(MAGIC);
+                writer.putInt(VERSION);
+                writer.putInt(RECORD_SIZE);
+                writer.putInt(INDEX_INTERVAL);
+                long[] index = new long[indexEntries(bars.size())];
+                writeRecords(writer, bars, 0, 0, index);
+                writer.finish(index, bars.size());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Add the bars newer than the last record; a bar with the same time as the last record
+    // replaces it (the session still forming). Earlier bars are left alone. Returns the
+    // number of records written.
+    static int append(Path path, PriceSeries bars) throws IOException {
+        BarFile file = open(path, true);
+        int start = 0;
+        int firstRecord = file.count;
+        if (file.count > 0) {
+            long last = file.timeAt(file.count - 1);
+            start = bars.lowerBound(last);
+            if (start < bars.size() && bars.getTime(start) == last) {
+                firstRecord--;
+            }
+        }
+        if (start == bars.size()) {
+            return 0;
+        }
+        int newCount = firstRecord + bars.size() - start;
+
+        // The checksum covers the untouched prefix too; CRC32 cannot resume from a stored
+        // value, so it is recomputed from the mapping (sequential, a few ms per million bars)
+        CRC32 crc = new CRC32();
+        crc.update(file.map.duplicate().position(0).limit((int) recordOffset(firstRecord)));
+        long[] index = new long[indexEntries(newCount)];
+        for (int k = 0; (long) k * INDEX_INTERVAL < firstRecord; k++) {
+            index[k] = file.timeAt(k * INDEX_INTERVAL);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            Writer writer = new Writer(channel, recordOffset(firstRecord), crc);
+            writeRecords(writer, bars, start, firstRecord, index);
+            writer.finish(index, newCount);
+        }
+        return newCount - firstRecord;
+    }
+
+    private static void writeRecords(Writer writer, PriceSeries bars, int from, int firstRecord, long[] index)
+            throws IOException {
+        PriceSeries.Cursor bar = bars.cursor().moveTo(from - 1);
+        for (int record = firstRecord; bar.next(); record++) {
+            if (record % INDEX_INTERVAL == 0) {
+                index[record / INDEX_INTERVAL] = bar.getTime();
+            }
+            writer.putLong(bar.getTime());
+            writer.putDouble(bar.getOpen());
+            writer.putDouble(bar.getHigh());
+            writer.putDouble(bar.getLow());
+            writer.putDouble(bar.getClose());
+            writer.putLong(bar.getVolume());
+        }
+    }
+
+    private static long recordOffset(long record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    private static int indexEntries(long count) {
+        return (int) ((count + INDEX_INTERVAL - 1) / INDEX_INTERVAL);
+    }
+
+    private static long fileSize(long count) {
+        return recordOffset(count) + (long) indexEntries(count) * Long.BYTES + TRAILER_SIZE;
+    }
+
+    // Buffered positional writes that keep a running CRC of everything but the trailer
+    private static final class Writer {
+        private final FileChannel channel;
+        private final CRC32 crc;
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private long position;
+
+        Writer(FileChannel channel, long position, CRC32 crc) {
+            this.channel = channel;
+            this.position = position;
+            this.crc = crc;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+
+        // Index, then the trailer, then make it durable before anyone trusts the file
+        void finish(long[] index, long count) throws IOException {
+            for (long time : index) {
+                putLong(time);
+            }
+            flush();
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            trailer.putLong(count).putLong(crc.getValue()).putInt(TRAILER_MAGIC).flip();
+            while (trailer.hasRemaining()) {
+                position += channel.write(trailer, position);
+            }
+            channel.truncate(position);
+            channel.force(true);
+        }
+    }
+
+    // The file failed validation and must not be read
+    static final class CorruptBarFileException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CorruptBarFileException(Path path, String reason) {
+            super("Corrupt bar file " + path.getFileName() + ": " + reason);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.stocktracker.storage;
+
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.PriceSeries;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Read-optimised copy of stock_data: one memory-mapped BarFile per symbol. Opening a
+// range is a mapping plus a binary search instead of a JDBC scan. SQLite stays the source
+// of truth; callers build a symbol's file from it (write) and keep it current (append).
+// A file that fails validation is deleted and reported as missing, so a crash costs one
+// rebuild from the database, never wrong bars.
+public class BarStore {
+    private static final String SUFFIX = ".bars";
+    // Files that failed validation and were dropped for a rebuild
+    private static final Counter CORRUPT_FILES = Metrics.counter("store.corrupt");
+
+    private final Path directory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Files whose checksum passed, with the size and modification time seen at the time,
+    // so each file is checked once rather than on every read
+    private final Map<Path, Stamp> verified = new ConcurrentHashMap<>();
+
+    public BarStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    public boolean contains(String symbol) {
+        return Files.exists(path(symbol));
+    }
+
+    // Bars with from <= time <= to (either bound may be null), or null when the symbol
+    // has no valid file
+    public PriceSeries read(String symbol, LocalDateTime from, LocalDateTime to) throws IOException {
+        lock.readLock().lock();
+        try {
+            BarFile file = open(symbol);
+            if (file == null) {
+                return null;
+            }
+            int start = from == null ? 0 : file.lowerBound(from.toEpochSecond(ZoneOffset.UTC));
+            int end = to == null ? file.size() : file.lowerBound(to.toEpochSecond(ZoneOffset.UTC) + 1);
+            return file.read(start, Math.max(start, end));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The most recent bars, oldest first, or null when the symbol has no valid file
+    public PriceSeries readLast(String symbol, int bars) throws IOException {
+        lock.readLock().lock();
+        try {
+            BarFile file = open(symbol);
+            if (file == null) {
+                return null;
+            }
+            return file.read(Math.max(0, file.size() - bars), file.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Replace the symbol's file with the given bars (its full history)
+    public void write(String symbol, PriceSeries bars) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Path path = path(symbol);
+            BarFile.write(path, bars);
+            verified.put(path, Stamp.of(path));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Add bars after the newest stored one. Only symbols that already have a file are
+    // updated: a file must hold the full history, so new symbols are built with write().
+    // Returns the number of records written.
+    public int append(String symbol, PriceSeries bars) throws IOException {
+        lock.writeLock().lock();
+        Path path = path(symbol);
+        try {
+            if (bars.isEmpty() || !Files.exists(path)) {
+                return 0;
+            }
+            int written = BarFile.append(path, bars);
+            verified.put(path, Stamp.of(path));
+            return written;
+        } catch (BarFile.CorruptBarFileException e) {
+            CORRUPT_FILES.increment();
+            delete(path);
+            return 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(String symbol) throws IOException {
+        lock.writeLock().lock();
+        try {
+            delete(path(symbol));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private BarFile open(String symbol) throws IOException {
+        Path path = path(symbol);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Stamp stamp = Stamp.of(path);
+        try {
+            BarFile file = BarFile.open(path, !stamp.equals(verified.get(path)));
+            verified.put(path, stamp);
+            return file;
+        } catch (BarFile.CorruptBarFileException e) {
+            CORRUPT_FILES.increment();
+            // Readers share the lock, so another one may have deleted it already
+            delete(path);
+            return null;
+        }
+    }
+
+    private void delete(Path path) throws IOException {
+        verified.remove(path);
+        Files.deleteIfExists(path);
+    }
+
+    private Path path(String symbol) {
+        return directory.resolve(symbol.toUpperCase().replaceAll("[^A-Z0-9._-]", "_") + SUFFIX);
+    }
+
+    private static final class Stamp {
+        private final long size;
+        private final long modified;
+
+        private Stamp(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        static Stamp of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Stamp && ((Stamp) other).size == size && ((Stamp) other).modified == modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.stocktracker.ui;
+
+import com.stocktracker.api.ApiClient;
+import com.stocktracker.api.RateLimiter;
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.service.MarketDataService;
+import com.stocktracker.ui.charts.CandlestickChart;
+import com.stocktracker.ui.charts.TimeAxis;
+import com.stocktracker.util.DaemonThreads;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.ToggleGroup;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.RowConstraints;
+import javafx.scene.layout.StackPane;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// A basket of symbols side by side as small candlestick charts, or overlaid as % change
+// from the start of the window. Series come through MarketDataService, so anything loaded
+// recently is served from memory; the rest load in parallel and queue for the rate limit.
+// Charts are filled in a few per frame as their data arrives, never all in one pulse.
+public class CompareView extends BorderPane {
+    public enum Mode { GRID, OVERLAY }
+
+    // One compact API response per symbol
+    private static final int BARS = ApiClient.OutputSize.COMPACT_BARS;
+    private static final int MAX_SYMBOLS = 25;
+    // Overlay lines are thinned to about one point per pixel column
+    private static final int MAX_OVERLAY_POINTS = 600;
+    // Leaves room in a 16 ms frame for the pulse itself
+    private static final long FRAME_BUDGET_MS = 8;
+
+    private final TextField symbolsInput = new TextField();
+    private final ToggleButton gridButton = new ToggleButton("Grid");
+    private final ToggleButton overlayButton = new ToggleButton("Overlay");
+    private final Label statusLabel = new Label();
+    private final StackPane content = new StackPane();
+
+    private final FrameScheduler frames = new FrameScheduler(FRAME_BUDGET_MS);
+    private final ExecutorService loader;
+    private final Consumer<List<String>> onSymbolsShown;
+
+    // State below is only touched on the FX thread
+    private Mode mode = Mode.GRID;
+    private List<String> symbols = List.of();
+    private final Map<String, PriceSeries> loaded = new LinkedHashMap<>();
+    private final Map<String, StackPane> cells = new HashMap<>();
+    private LineChart<Number, Number> overlay;
+    private int generation;
+    private int failed;
+    // Tokens from the last request that are not valid symbols, reported in the status line
+    private List<String> rejected = List.of();
+    // Valid symbols past MAX_SYMBOLS, also reported rather than dropped silently
+    private List<String> overflow = List.of();
+
+    // onSymbolsShown hears the basket whenever it changes (empty once the view is disposed)
+    public CompareView(Consumer<List<String>> onSymbolsShown) {
+        this.onSymbolsShown = onSymbolsShown;
+        this.loader = Executors.newFixedThreadPool(4, DaemonThreads.numbered("compare-loader"));
+
+        symbolsInput.setPromptText("Symbols, e.g. XOM CVX COP EOG SLB");
+        symbolsInput.setStyle("-fx-font-size: 14px; -fx-padding: 8px;");
+        HBox.setHgrow(symbolsInput, Priority.ALWAYS);
+        symbolsInput.setOnAction(e -> show(parseSymbols(symbolsInput.getText())));
+
+        Button compareButton = new Button("Compare");
+        compareButton.setStyle("-fx-background-color: #3498DB; -fx-text-fill: white; -fx-font-size: 14px; -fx-font-weight: bold; -fx-padding: 8px 16px; -fx-background-radius: 5;");
+        compareButton.setOnAction(e -> show(parseSymbols(symbolsInput.getText())));
+
+        ToggleGroup modes = new ToggleGroup();
+        gridButton.setToggleGroup(modes);
+        overlayButton.setToggleGroup(modes);
+        gridButton.setSelected(true);
+        gridButton.setOnAction(e -> setMode(Mode.GRID));
+        overlayButton.setOnAction(e -> setMode(Mode.OVERLAY));
+
+        HBox controls = new HBox(10, symbolsInput, compareButton, gridButton, overlayButton);
+        controls.setAlignment(Pos.CENTER_LEFT);
+        controls.setPadding(new Insets(10));
+        controls.setStyle("-fx-background-color: #ECF0F1;");
+
+        statusLabel.setStyle("-fx-font-size: 13px; -fx-padding: 6px 10px; -fx-text-fill: #2C3E50;");
+
+        setTop(controls);
+        setCenter(content);
+        setBottom(statusLabel);
+    }
+
+    public List<String> getSymbols() {
+        return symbols;
+    }
+
+    // Load and show the basket, replacing the current one. Invalid symbols and any beyond
+    // MAX_SYMBOLS are left out.
+    public void show(List<String> requested) {
+        List<String> basket = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        for (String symbol : requested) {
+            (MainApp.isValidSymbol(symbol) ? basket : invalid).add(symbol);
+        }
+        rejected = List.copyOf(invalid);
+        int kept = Math.min(basket.size(), MAX_SYMBOLS);
+        symbols = List.copyOf(basket.subList(0, kept));
+        overflow = List.copyOf(basket.subList(kept, basket.size()));
+        symbolsInput.setText(String.join(" ", symbols));
+        int current = ++generation;
+        frames.clear();
+        loaded.clear();
+        failed = 0;
+        rebuild();
+        onSymbolsShown.accept(symbols);
+
+        for (String symbol : symbols) {
+            CompletableFuture.supplyAsync(() -> load(symbol), loader).whenComplete((series, error) ->
+                    Platform.runLater(() -> {
+                        if (current != generation) {
+                            return;
+                        }
+                        if (error != null) {
+                            failed++;
+                            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                            frames.submit(() -> showFailure(symbol, cause));
+                        } else {
+                            loaded.put(symbol, series);
+                            frames.submit(() -> render(symbol, series));
+                        }
+                        updateStatus();
+                    }));
+        }
+        updateStatus();
+    }
+
+    public void setMode(Mode newMode) {
+        if (mode == newMode) return;
+        mode = newMode;
+        (newMode == Mode.GRID ? gridButton : overlayButton).setSelected(true);
+        frames.clear();
+        rebuild();
+        // Everything already loaded is drawn again in the new layout, still a few per frame
+        loaded.forEach((symbol, series) -> frames.submit(() -> render(symbol, series)));
+    }
+
+    public void dispose() {
+        generation++;
+        frames.stop();
+        loader.shutdownNow();
+        onSymbolsShown.accept(List.of());
+    }
+
+    private static PriceSeries load(String symbol) {
+        try {
+            return MarketDataService.loadPrices(symbol, BARS, RateLimiter.Priority.INTERACTIVE);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // Empty cells or an empty overlay chart, ready to be filled as series arrive
+    private void rebuild() {
+        cells.clear();
+        overlay = null;
+        if (mode == Mode.OVERLAY) {
+            NumberAxis yAxis = new NumberAxis();
+            yAxis.setForceZeroInRange(false);
+            yAxis.setLabel("% change");
+            overlay = new LineChart<>(new TimeAxis(), yAxis);
+            overlay.setAnimated(false);
+            overlay.setCreateSymbols(false);
+            overlay.setTitle("Change over the last " + BARS + " sessions");
+            content.getChildren().setAll(overlay);
+            return;
+        }
+
+        GridPane grid = new GridPane();
+        grid.setHgap(6);
+        grid.setVgap(6);
+        grid.setPadding(new Insets(6));
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(symbols.size())));
+        int rows = Math.max(1, (symbols.size() + columns - 1) / columns);
+        for (int c = 0; c < columns; c++) {
+            ColumnConstraints column = new ColumnConstraints();
+            column.setPercentWidth(100.0 / columns);
+            grid.getColumnConstraints().add(column);
+        }
+        for (int r = 0; r < rows; r++) {
+            RowConstraints row = new RowConstraints();
+            row.setPercentHeight(100.0 / rows);
+            grid.getRowConstraints().add(row);
+        }
+        for (int i = 0; i < symbols.size(); i++) {
+            StackPane cell = new StackPane(placeholder("Loading " + symbols.get(i) + "..."));
+            cell.setMinSize(0, 0);
+            cell.setStyle("-fx-background-color: #FAFAFA; -fx-border-color: #E0E0E0;");
+            cells.put(symbols.get(i), cell);
+            grid.add(cell, i % columns, i / columns);
+        }
+        content.getChildren().setAll(grid);
+    }
+
+    // Runs as a frame task: draw one symbol and lay it out within this frame
+    private void render(String symbol, PriceSeries series) {
+        if (mode == Mode.OVERLAY) {
+            if (overlay != null) {
+                overlay.getData().add(normalized(symbol, series));
+                overlay.applyCss();
+                overlay.layout();
+            }
+            return;
+        }
+        StackPane cell = cells.get(symbol);
+        if (cell == null) return;
+        if (series.isEmpty()) {
+            cell.getChildren().setAll(placeholder("No data for " + symbol));
+            return;
+        }
+        NumberAxis yAxis = new NumberAxis();
+        yAxis.setForceZeroInRange(false);
+        CandlestickChart chart = new CandlestickChart(new TimeAxis(), yAxis);
+        chart.setTitle(symbol);
+        chart.setLegendVisible(false);
+        chart.setMinSize(0, 0);
+        chart.setStyle(chart.getStyle() + "-fx-font-size: 11px;");
+        chart.setPriceSeries(series);
+        cell.getChildren().setAll(chart);
+        cell.applyCss();
+        cell.layout();
+    }
+
+    private void showFailure(String symbol, Throwable error) {
+        StackPane cell = cells.get(symbol);
+        if (cell != null) {
+            cell.getChildren().setAll(placeholder(symbol + ": " + error.getMessage()));
+        }
+    }
+
+    // Closes as % change from the first bar of the window, thinned to MAX_OVERLAY_POINTS
+    private static XYChart.Series<Number, Number> normalized(String symbol, PriceSeries series) {
+        XYChart.Series<Number, Number> line = new XYChart.Series<>();
+        line.setName(symbol);
+        if (series.isEmpty()) {
+            return line;
+        }
+        double base = series.getClose(0);
+        int step = Math.max(1, (series.size() + MAX_OVERLAY_POINTS - 1) / MAX_OVERLAY_POINTS);
+        List<XYChart.Data<Number, Number>> points = new ArrayList<>(series.size() / step + 1);
+        for (int i = 0; i < series.size(); i += step) {
+            points.add(point(series, i, base));
+        }
+        if ((series.size() - 1) % step != 0) {
+            points.add(point(series, series.size() - 1, base));
+        }
+        line.getData().setAll(points);
+        return line;
+    }
+
+    private static XYChart.Data<Number, Number> point(PriceSeries series, int i, double base) {
+        return new XYChart.Data<>(series.getTime(i), (series.getClose(i) / base - 1) * 100);
+    }
+
+    private void updateStatus() {
+        int done = loaded.size() + failed;
+        String ignored = rejected.isEmpty() ? ""
+                : "; ignored " + String.join(", ", rejected) + " (use 1-5 uppercase letters)";
+        if (!overflow.isEmpty()) {
+            ignored += "; left out " + String.join(", ", overflow) + " (at most " + MAX_SYMBOLS + " symbols)";
+        }
+        if (symbols.isEmpty()) {
+            statusLabel.setText("Enter symbols to compare" + ignored);
+        } else if (done < symbols.size()) {
+            statusLabel.setText(String.format("Loaded %d of %d symbols%s%s", done, symbols.size(),
+                    ApiClient.isRateLimited() ? " (waiting for the API rate limit)" : "", ignored));
+        } else {
+            statusLabel.setText(String.format("Showing %d symbols%s%s", loaded.size(),
+                    failed > 0 ? ", " + failed + " failed" : "", ignored));
+        }
+    }
+
+    private static Node placeholder(String text) {
+        Label label = new Label(text);
+        label.setWrapText(true);
+        label.setStyle("-fx-text-fill: #7F8C8D; -fx-font-size: 13px;");
+        return label;
+    }
+
+    // Upper-cased, de-duplicated symbols from free text (spaces, commas or semicolons)
+    public static List<String> parseSymbols(String text) {
+        Set<String> symbols = new LinkedHashSet<>();
+        for (String token : text.trim().split("[\\s,;]+")) {
+            if (!token.isEmpty()) {
+                symbols.add(token.toUpperCase());
+            }
+        }
+        return new ArrayList<>(symbols);
+    }
+}
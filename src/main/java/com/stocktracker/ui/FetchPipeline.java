@@ -0,0 +1,221 @@
+package com.stocktracker.ui;
+
+import com.stocktracker.api.RateLimiter;
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
+import com.stocktracker.service.MarketDataService;
+import com.stocktracker.util.DaemonThreads;
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Runs load -> fetch/parse -> persist off the FX thread and hands the result back for rendering.
+// Saved bars are read first and only the missing sessions are fetched (see MarketDataService).
+// Requests for a symbol that is already in flight join the running request instead of
+// starting a new one. All listener callbacks are delivered on the FX application thread.
+public class FetchPipeline {
+    public enum Stage {
+        // Bars are parsed as they stream in, so fetching and parsing are one stage
+        LOAD("Loading saved data for"), FETCH("Fetching"), PERSIST("Saving"), RENDER("Rendering");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        // Fraction of the pipeline completed once this stage starts
+        public double getProgress() {
+            return (double) ordinal() / values().length;
+        }
+    }
+
+    public interface Listener {
+        void onProgress(String symbol, Stage stage);
+
+        void onComplete(String symbol, List<StockData> data);
+
+        void onFailure(String symbol, Throwable error);
+
+        default void onCancelled(String symbol) {
+        }
+    }
+
+    // Bars behind the main chart: enough history for the canvas renderer to take over from
+    // one node per candle (MainApp.CANVAS_RENDER_THRESHOLD)
+    static final int CHART_BARS = 1_000;
+
+    // Refreshes that failed while saved bars could still be shown
+    private static final Counter REFRESH_FAILURES = Metrics.counter("fetch.refreshFailures");
+
+    private final ExecutorService executor;
+    private final Map<String, Request> inFlight = new ConcurrentHashMap<>();
+
+    public FetchPipeline() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public FetchPipeline(int threads) {
+        this.executor = Executors.newFixedThreadPool(threads, DaemonThreads.numbered("fetch-pipeline"));
+    }
+
+    // Start (or join) a fetch for the symbol
+    public void submit(String symbol, Listener listener) {
+        while (true) {
+            Request existing = inFlight.get(symbol);
+            if (existing != null && existing.addListener(listener)) {
+                return;
+            }
+            Request request = new Request(symbol, listener);
+            if (existing == null ? inFlight.putIfAbsent(symbol, request) == null
+                    : inFlight.replace(symbol, existing, request)) {
+                request.future = executor.submit(request::run);
+                return;
+            }
+        }
+    }
+
+    public boolean isInFlight(String symbol) {
+        return inFlight.containsKey(symbol);
+    }
+
+    public void cancel(String symbol) {
+        Request request = inFlight.get(symbol);
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    public void cancelAll() {
+        inFlight.values().forEach(Request::cancel);
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    private final class Request {
+        private final String symbol;
+        private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+        private volatile Future<?> future;
+        private volatile boolean cancelled;
+        private volatile Stage stage = Stage.FETCH;
+        private boolean finished;
+
+        Request(String symbol, Listener listener) {
+            this.symbol = symbol;
+            listeners.add(listener);
+        }
+
+        // Returns false once the request has finished and can no longer be joined
+        synchronized boolean addListener(Listener listener) {
+            if (finished || cancelled) {
+                return false;
+            }
+            listeners.add(listener);
+            Stage current = stage;
+            Platform.runLater(() -> listener.onProgress(symbol, current));
+            return true;
+        }
+
+        void run() {
+            try {
+                PriceSeries cached = MarketDataService.cachedPrices(symbol, CHART_BARS, Instant.now());
+                if (cached != null) {
+                    enter(Stage.RENDER);
+                    List<StockData> result = cached.toList();
+                    finish(listener -> listener.onComplete(symbol, result));
+                    return;
+                }
+
+                enter(Stage.LOAD);
+                List<StockData> stored = MarketDataService.loadStored(symbol, CHART_BARS);
+                MarketDataService.DeltaPlan plan =
+                        MarketDataService.planDelta(stored, CHART_BARS, Instant.now());
+
+                List<StockData> data = stored;
+                if (!plan.isUpToDate()) {
+                    enter(Stage.FETCH);
+                    List<StockData> fetched = fetchOrKeepStored(plan, stored);
+
+                    enter(Stage.PERSIST);
+                    MarketDataService.persist(symbol, fetched);
+                    data = MarketDataService.merge(stored, fetched, CHART_BARS);
+                }
+                MarketDataService.cachePrices(symbol, data);
+
+                enter(Stage.RENDER);
+                List<StockData> result = data;
+                finish(listener -> listener.onComplete(symbol, result));
+            } catch (CancellationException e) {
+                finish(listener -> listener.onCancelled(symbol));
+            } catch (Exception e) {
+                if (cancelled) {
+                    finish(listener -> listener.onCancelled(symbol));
+                } else {
+                    finish(listener -> listener.onFailure(symbol, e));
+                }
+            }
+        }
+
+        // A failed refresh still leaves the saved bars worth showing
+        private List<StockData> fetchOrKeepStored(MarketDataService.DeltaPlan plan, List<StockData> stored)
+                throws IOException {
+            try {
+                return MarketDataService.fetchDelta(symbol, plan, RateLimiter.Priority.INTERACTIVE);
+            } catch (IOException | RuntimeException e) {
+                if (stored.isEmpty() || cancelled) {
+                    throw e;
+                }
+                REFRESH_FAILURES.increment();
+                return List.of();
+            }
+        }
+
+        private void enter(Stage next) {
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+            stage = next;
+            Platform.runLater(() -> listeners.forEach(listener -> listener.onProgress(symbol, next)));
+        }
+
+        private void finish(Consumer<Listener> callback) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            }
+            inFlight.remove(symbol, this);
+            Platform.runLater(() -> listeners.forEach(callback));
+        }
+
+        void cancel() {
+            cancelled = true;
+            Future<?> running = future;
+            if (running != null) {
+                running.cancel(true);
+            }
+            // Report immediately; whatever the worker reports afterwards is ignored
+            finish(listener -> listener.onCancelled(symbol));
+        }
+    }
+}
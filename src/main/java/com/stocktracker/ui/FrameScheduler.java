@@ -0,0 +1,76 @@
+package com.stocktracker.ui;
+
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayDeque;
+
+// Runs queued UI work on the FX thread a few tasks per frame, stopping once the frame's
+// budget is spent, so a burst of work (e.g. filling a grid of charts) is spread over
+// several frames instead of freezing one. Tasks should do their own layout (applyCss /
+// layout) so their full cost is paid, and measured, inside the frame they run in.
+// Only use from the FX thread.
+public class FrameScheduler {
+    private static final Counter TASK_FAILURES = Metrics.counter("ui.frameTaskFailures");
+
+    private final long budgetNanos;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private boolean running;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            runFrame();
+        }
+    };
+
+    public FrameScheduler(long budgetMillis) {
+        this.budgetNanos = budgetMillis * 1_000_000;
+    }
+
+    public void submit(Runnable task) {
+        tasks.add(task);
+        if (!running) {
+            running = true;
+            timer.start();
+        }
+    }
+
+    // Drop work that has not run yet, e.g. when the view it was for is replaced
+    public void clear() {
+        tasks.clear();
+    }
+
+    public int pending() {
+        return tasks.size();
+    }
+
+    public void stop() {
+        tasks.clear();
+        timer.stop();
+        running = false;
+    }
+
+    // At least one task per frame, so a task larger than the budget still makes progress
+    private void runFrame() {
+        long start = System.nanoTime();
+        do {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                break;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // One bad task must not stall the queue behind it
+                TASK_FAILURES.increment();
+            }
+        } while (System.nanoTime() - start < budgetNanos);
+
+        if (tasks.isEmpty()) {
+            timer.stop();
+            running = false;
+        }
+    }
+}
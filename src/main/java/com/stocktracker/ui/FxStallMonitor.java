@@ -0,0 +1,89 @@
+package com.stocktracker.ui;
+
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.LatencyHistogram;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.util.DaemonThreads;
+import javafx.application.Platform;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Measures how long the FX application thread takes to pick up a runnable. A probe is
+// posted every interval and timed until it runs; anything the thread is busy with (layout,
+// a slow handler, a blocking call) shows up as delay in ui.fx.delay. Delays above the stall
+// threshold are counted and their time summed, and the thread's stack is kept once per stall
+// as the ui.fx.lastStall note in the metrics report.
+public class FxStallMonitor {
+    private static final LatencyHistogram DELAY = Metrics.histogram("ui.fx.delay");
+    private static final Counter STALLS = Metrics.counter("ui.fx.stalls");
+    private static final Counter STALL_MILLIS = Metrics.counter("ui.fx.stallMillis");
+
+    private final Duration interval;
+    private final long stallNanos;
+    // Only one probe in flight, so a long stall doesn't pile probes up behind it
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile long postedAt;
+    private volatile Thread fxThread;
+    private volatile boolean stallLogged;
+    private ScheduledExecutorService prober;
+
+    public FxStallMonitor(Duration interval, Duration stallThreshold) {
+        this.interval = interval;
+        this.stallNanos = stallThreshold.toNanos();
+    }
+
+    public synchronized void start() {
+        if (prober != null) return;
+        prober = Executors.newSingleThreadScheduledExecutor(DaemonThreads.named("fx-stall-monitor"));
+        prober.scheduleAtFixedRate(this::probe, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+
+    private void probe() {
+        if (!pending.compareAndSet(false, true)) {
+            // Previous probe still waiting: the FX thread is stuck right now
+            long waited = System.nanoTime() - postedAt;
+            Thread thread = fxThread;
+            if (waited > stallNanos && !stallLogged && thread != null) {
+                stallLogged = true;
+                StringBuilder stack = new StringBuilder("stalled for ")
+                        .append(TimeUnit.NANOSECONDS.toMillis(waited)).append(" ms at ").append(Instant.now());
+                for (StackTraceElement frame : thread.getStackTrace()) {
+                    stack.append("\n\tat ").append(frame);
+                }
+                Metrics.note("ui.fx.lastStall", stack.toString());
+            }
+            return;
+        }
+        postedAt = System.nanoTime();
+        try {
+            Platform.runLater(this::answer);
+        } catch (IllegalStateException e) {
+            // Toolkit has exited
+            pending.set(false);
+        }
+    }
+
+    private void answer() {
+        long delay = System.nanoTime() - postedAt;
+        fxThread = Thread.currentThread();
+        DELAY.record(delay);
+        if (delay > stallNanos) {
+            STALLS.increment();
+            STALL_MILLIS.add(TimeUnit.NANOSECONDS.toMillis(delay));
+        }
+        stallLogged = false;
+        pending.set(false);
+    }
+}
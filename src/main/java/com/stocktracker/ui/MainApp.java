@@ -1,40 +1,143 @@
 package com.stocktracker.ui;
 
+import com.stocktracker.analytics.Indicator;
+import com.stocktracker.analytics.IndicatorEngine;
+import com.stocktracker.analytics.IndicatorSeries;
+import com.stocktracker.analytics.Indicators;
 import com.stocktracker.api.ApiClient;
+import com.stocktracker.api.RateLimiter;
 import com.stocktracker.database.DatabaseManager;
-import com.stocktracker.database.daos.StockDAO;
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.PriceSeries;
 import com.stocktracker.models.StockData;
+import com.stocktracker.service.AlertEngine;
+import com.stocktracker.service.MarketDataService;
+import com.stocktracker.service.WatchlistScheduler;
 import com.stocktracker.ui.charts.CandlestickChart;
+import com.stocktracker.ui.charts.LineOverlay;
+import com.stocktracker.ui.charts.TimeAxis;
+import com.stocktracker.util.DaemonThreads;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
-import javafx.scene.chart.CategoryAxis;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class MainApp extends Application {
+    // Above this many bars the chart paints into a canvas instead of one node per candle
+    private static final int CANVAS_RENDER_THRESHOLD = 500;
+    // Live mode polls one quote per interval, leaving most of the API budget for fetches
+    private static final Duration LIVE_POLL_INTERVAL = Duration.ofSeconds(20);
+    // Every offered indicator is kept current for the chart; only the ticked ones are drawn
+    private static final List<Indicator> CHART_INDICATORS = List.of(
+            Indicators.sma(20), Indicators.ema(50), Indicators.bollinger(20, 2), Indicators.vwap());
+    private static final Color[] INDICATOR_COLORS = {
+            Color.rgb(243, 156, 18), Color.rgb(142, 68, 173), Color.rgb(41, 128, 185), Color.rgb(22, 160, 133)
+    };
+    private static final Duration ALERT_RELOAD_INTERVAL = Duration.ofSeconds(30);
+    // Snapshot of every counter and latency histogram appended here periodically
+    private static final Path METRICS_FILE = Path.of(System.getProperty("stocktracker.metrics.file", "metrics.log"));
+    private static final Duration METRICS_DUMP_INTERVAL =
+            Duration.ofSeconds(Long.getLong("stocktracker.metrics.dumpSeconds", 60));
+
+    private static final Counter ALERT_LOAD_FAILURES = Metrics.counter("alerts.reloadFailures");
+    private static final Counter WATCHLIST_START_FAILURES = Metrics.counter("watchlist.startFailures");
+    private static final Counter SAMPLE_DATA_SHOWN = Metrics.counter("ui.sampleDataShown");
+    private static final Counter INDICATOR_PRIME_FAILURES = Metrics.counter("ui.indicatorPrimeFailures");
+
     private CandlestickChart chart;
     private Label statusLabel;
     private TextField symbolInput;
     private ComboBox<String> symbolHistory;
     private Button fetchButton;
+    private ToggleButton liveToggle;
+    private Button watchButton;
+    private Button compareButton;
+    private Stage compareStage;
+    private CompareView compareView;
+    private MenuButton indicatorMenu;
+    private ProgressIndicator progressIndicator;
+
+    private final FetchPipeline fetchPipeline = new FetchPipeline();
+    private String pendingSymbol;
+
+    // Symbol and series currently on the chart, updated in place by live quotes
+    private volatile String chartSymbol;
+    private XYChart.Series<Number, Number> chartSeries;
+    // Bars behind the chart as columns; the chart updates them itself in canvas mode
+    private PriceSeries chartPrices;
+    private ScheduledExecutorService livePoller;
+    private ScheduledFuture<?> liveTask;
+
+    // Indicators for the chart. Also tracks the watched symbols over the chart's window, so opening one only feeds the
+    // bars that changed. Touched on the FX thread only; updateAll holds it while the pool works.
+    private final IndicatorEngine indicators = new IndicatorEngine(CHART_INDICATORS);
+    // Checked against every quote and loaded bar; picks up alert table changes by itself
+    private final AlertEngine alertEngine = new AlertEngine();
+    // Refreshes watched symbols in the background with whatever API budget is left over
+    private final WatchlistScheduler watchlist = new WatchlistScheduler(
+            new WatchlistScheduler.Config().seriesBars(FetchPipeline.CHART_BARS), alertEngine);
+    private final FxStallMonitor stallMonitor = new FxStallMonitor(Duration.ofMillis(100), Duration.ofMillis(250));
 
     @Override
     public void start(Stage stage) {
+        Metrics.registerMBean();
+        Metrics.startDump(METRICS_FILE, METRICS_DUMP_INTERVAL);
+        stallMonitor.start();
         DatabaseManager.initialize();
+        alertEngine.addListener(event -> showStatus("Alert: " + event, "info"), Platform::runLater);
+        CompletableFuture.runAsync(() -> {
+            // Independent of each other: the watchlist refreshes even if the alerts fail to load
+            try {
+                alertEngine.reload();
+            } catch (SQLException | RuntimeException e) {
+                ALERT_LOAD_FAILURES.increment();
+                Platform.runLater(() -> showStatus("Alerts could not be loaded: " + e.getMessage(), "error"));
+            }
+            try {
+                watchlist.start();
+            } catch (SQLException | RuntimeException e) {
+                WATCHLIST_START_FAILURES.increment();
+                Platform.runLater(() -> showStatus("Watchlist refresh could not start: " + e.getMessage(), "error"));
+                return;
+            }
+            primeIndicators();
+        });
+        watchlist.addListener(new WatchlistScheduler.Listener() {
+            @Override
+            public void onSeries(String symbol, List<StockData> bars) {
+                // The chart feeds its own symbol from the bars it shows
+                if (!symbol.equals(chartSymbol)) {
+                    indicators.update(symbol, PriceSeries.of(bars));
+                }
+            }
+        }, Platform::runLater);
+        alertEngine.startAutoReload(ALERT_RELOAD_INTERVAL);
 
         // UI Components
         Label titleLabel = new Label("Stock Tracker");
@@ -50,6 +153,10 @@ public class MainApp extends Application {
         fetchButton.setOnMouseEntered(e -> fetchButton.setStyle("-fx-background-color: #2980B9; -fx-text-fill: white; -fx-font-size: 14px; -fx-font-weight: bold; -fx-padding: 10px 20px; -fx-border-radius: 5; -fx-background-radius: 5; -fx-cursor: hand;"));
         fetchButton.setOnMouseExited(e -> fetchButton.setStyle("-fx-background-color: #3498DB; -fx-text-fill: white; -fx-font-size: 14px; -fx-font-weight: bold; -fx-padding: 10px 20px; -fx-border-radius: 5; -fx-background-radius: 5; -fx-cursor: hand;"));
 
+        progressIndicator = new ProgressIndicator();
+        progressIndicator.setPrefSize(28, 28);
+        progressIndicator.setVisible(false);
+
         statusLabel = new Label();
         statusLabel.setWrapText(true);
         statusLabel.setStyle("-fx-font-size: 14px; -fx-padding: 10px; -fx-background-radius: 5;");
@@ -60,8 +167,10 @@ public class MainApp extends Application {
         symbolHistory.setStyle("-fx-font-size: 14px; -fx-padding: 5px;");
 
         // Chart Setup
-        CategoryAxis xAxis = new CategoryAxis();
+        TimeAxis xAxis = new TimeAxis();
         NumberAxis yAxis = new NumberAxis();
+        // The chart ranges prices over the visible lows and highs
+        yAxis.setForceZeroInRange(false);
         chart = new CandlestickChart(xAxis, yAxis);
         chart.setAnimated(false);
         chart.setPrefSize(1600, 900);
@@ -75,8 +184,31 @@ public class MainApp extends Application {
         chart.setTitle("Stock Price Chart");
         chart.setStyle(chart.getStyle() + "-fx-font-size: 18px; -fx-font-weight: bold;");
 
+        liveToggle = new ToggleButton("Live");
+        liveToggle.setStyle("-fx-font-size: 14px; -fx-padding: 8px 15px; -fx-background-radius: 5;");
+        liveToggle.setTooltip(new Tooltip("Update the last candle from live quotes"));
+
+        watchButton = new Button("Watch");
+        watchButton.setStyle("-fx-font-size: 14px; -fx-padding: 8px 15px; -fx-background-radius: 5;");
+        watchButton.setTooltip(new Tooltip("Keep this symbol up to date in the background"));
+
+        compareButton = new Button("Compare");
+        compareButton.setStyle("-fx-font-size: 14px; -fx-padding: 8px 15px; -fx-background-radius: 5;");
+        compareButton.setTooltip(new Tooltip("Show several symbols side by side or overlaid"));
+
+        indicatorMenu = new MenuButton("Indicators");
+        indicatorMenu.setStyle("-fx-font-size: 14px; -fx-padding: 4px 8px; -fx-background-radius: 5;");
+        for (Indicator indicator : CHART_INDICATORS) {
+            CheckMenuItem item = new CheckMenuItem(indicator.lineName(0));
+            item.setOnAction(e -> updateOverlays());
+            indicatorMenu.getItems().add(item);
+        }
+
         // Event Handling
         fetchButton.setOnAction(e -> handleFetchRequest());
+        liveToggle.setOnAction(e -> setLive(liveToggle.isSelected()));
+        watchButton.setOnAction(e -> handleWatchRequest());
+        compareButton.setOnAction(e -> openCompare());
         symbolHistory.setOnAction(e -> symbolInput.setText(symbolHistory.getValue()));
 
         // Input validation styling
@@ -103,6 +235,19 @@ public class MainApp extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        if (livePoller != null) {
+            livePoller.shutdownNow();
+        }
+        watchlist.stop();
+        alertEngine.stop();
+        fetchPipeline.shutdown();
+        DatabaseManager.shutdown();
+        stallMonitor.stop();
+        Metrics.stopDump();
+    }
+
     private HBox createInputPanel() {
         HBox panel = new HBox(15);
         panel.setAlignment(Pos.CENTER);
@@ -118,6 +263,11 @@ public class MainApp extends Application {
                 symbolLabel,
                 symbolInput,
                 fetchButton,
+                liveToggle,
+                watchButton,
+                compareButton,
+                indicatorMenu,
+                progressIndicator,
                 historyLabel,
                 symbolHistory
         );
@@ -139,45 +289,125 @@ public class MainApp extends Application {
             return;
         }
 
-        try {
-            if (ApiClient.isRateLimited()) {
-                showStatus("API rate limit exceeded. Please wait 1 minute", "error");
-                return;
+        // Only the most recently requested symbol is rendered; drop the one we were waiting on
+        if (pendingSymbol != null && !pendingSymbol.equals(symbol)) {
+            fetchPipeline.cancel(pendingSymbol);
+        }
+        pendingSymbol = symbol;
+        fetchPipeline.submit(symbol, fetchListener);
+    }
+
+    // Starts with the recent symbols; the basket can be edited in the window
+    private void openCompare() {
+        if (compareStage == null) {
+            compareView = new CompareView(symbols -> updateOnScreen());
+            compareStage = new Stage();
+            compareStage.setTitle("Compare");
+            compareStage.setScene(new Scene(compareView, 1400, 900));
+            compareStage.setOnHidden(e -> {
+                CompareView closed = compareView;
+                compareView = null;
+                compareStage = null;
+                closed.dispose();
+            });
+            List<String> basket = new ArrayList<>(symbolHistory.getItems());
+            if (chartSymbol != null && !basket.contains(chartSymbol)) {
+                basket.add(0, chartSymbol);
+            }
+            compareView.show(basket);
+        }
+        compareStage.show();
+        compareStage.toFront();
+    }
+
+    // The chart and the compare window count as on screen for the background refresh
+    private void updateOnScreen() {
+        List<String> onScreen = new ArrayList<>();
+        if (chartSymbol != null) {
+            onScreen.add(chartSymbol);
+        }
+        if (compareView != null) {
+            onScreen.addAll(compareView.getSymbols());
+        }
+        watchlist.setOnScreen(onScreen);
+    }
+
+    private void handleWatchRequest() {
+        String symbol = symbolInput.getText().trim().toUpperCase();
+        if (!isValidSymbol(symbol)) {
+            showStatus("Enter a valid symbol to watch", "error");
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                boolean added = watchlist.add(symbol);
+                Platform.runLater(() -> showStatus(added
+                        ? symbol + " added to the watchlist"
+                        : symbol + " is already on the watchlist", "info"));
+            } catch (SQLException e) {
+                Platform.runLater(() -> showStatus("Database error: " + e.getMessage(), "error"));
             }
+        });
+    }
 
-            List<StockData> stockData = fetchAndProcessData(symbol);
+    private final FetchPipeline.Listener fetchListener = new FetchPipeline.Listener() {
+        @Override
+        public void onProgress(String symbol, FetchPipeline.Stage stage) {
+            if (!symbol.equals(pendingSymbol)) return;
+            progressIndicator.setVisible(true);
+            progressIndicator.setProgress(stage.getProgress());
+            if (stage == FetchPipeline.Stage.FETCH && ApiClient.isRateLimited()) {
+                showStatus("API rate limit reached, " + symbol + " is queued...", "info");
+            } else {
+                showStatus(stage.getLabel() + " " + symbol + "...", "info");
+            }
+        }
+
+        @Override
+        public void onComplete(String symbol, List<StockData> stockData) {
+            if (!symbol.equals(pendingSymbol)) return;
+            finishFetch();
             updateChart(symbol, stockData);
+            // Only real bars reach the alert engine, never the sample data shown on failure
+            if (!stockData.isEmpty()) {
+                alertEngine.onBar(symbol, stockData.get(stockData.size() - 1));
+            }
             updateHistory(symbol);
             showStatus(String.format("Loaded %d data points for %s",
                     stockData.size(), symbol), "success");
+        }
+
+        @Override
+        public void onFailure(String symbol, Throwable error) {
+            if (!symbol.equals(pendingSymbol)) return;
+            finishFetch();
+            SAMPLE_DATA_SHOWN.increment();
+            List<StockData> sampleData = createSampleData(symbol);
+            updateChart(symbol, sampleData);
+            updateHistory(symbol);
 
-        } catch (IOException ex) {
-            showStatus("Network error: " + ex.getMessage(), "error");
-        } catch (SQLException ex) {
-            showStatus("Database error: " + ex.getMessage(), "error");
-        } catch (RuntimeException ex) {
-            handleApiError(ex, symbol);
+            if (error instanceof IOException) {
+                showStatus("Network error: " + error.getMessage(), "error");
+            } else if (error instanceof SQLException) {
+                showStatus("Database error: " + error.getMessage(), "error");
+            } else if (error instanceof RuntimeException) {
+                handleApiError((RuntimeException) error, symbol);
+            } else {
+                showStatus("Error: " + error.getMessage(), "error");
+            }
         }
-    }
 
-    private List<StockData> fetchAndProcessData(String symbol)
-            throws IOException, SQLException {
-        try {
-            String jsonResponse = ApiClient.getDailySeries(symbol);
-            List<StockData> stockData = ApiClient.parseDailySeries(jsonResponse);
-
-            for (StockData data : stockData) {
-                StockDAO.insertStockData(symbol,
-                        data.getOpen(), data.getHigh(),
-                        data.getLow(), data.getClose(),
-                        data.getVolume()
-                );
+        @Override
+        public void onCancelled(String symbol) {
+            if (symbol.equals(pendingSymbol)) {
+                finishFetch();
             }
-            return stockData;
-        } catch (Exception e) {
-            System.out.println("API failed, creating sample data for: " + symbol);
-            return createSampleData(symbol);
         }
+    };
+
+    private void finishFetch() {
+        pendingSymbol = null;
+        progressIndicator.setVisible(false);
     }
 
     private List<StockData> createSampleData(String symbol) {
@@ -214,33 +444,129 @@ public class MainApp extends Application {
         chart.getYAxis().setStyle("-fx-font-size: 12px; -fx-font-weight: bold; -fx-text-fill: #2C3E50;");
         chart.getXAxis().setStyle("-fx-font-size: 12px; -fx-font-weight: bold; -fx-text-fill: #2C3E50;");
 
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        chart.resetZoom();
+        chartSymbol = symbol;
+        updateOnScreen();
+        chartPrices = PriceSeries.of(data);
+        updateOverlays();
+        if (data.size() > CANVAS_RENDER_THRESHOLD) {
+            // Long histories go to the canvas as columns, without a Data object per bar
+            chart.setPriceSeries(chartPrices);
+            chartSeries = null;
+            return;
+        }
+        chart.setPriceSeries(null);
+        chart.setRenderMode(CandlestickChart.RenderMode.NODES);
+
+        XYChart.Series<Number, Number> series = new XYChart.Series<>();
         series.setName(symbol);
         
         data.forEach(d -> series.getData().add(
                 new XYChart.Data<>(
-                        d.getTimestamp().toLocalDate().toString(),
+                        d.getEpochSecond(),
                         d.getClose(),
                         d
                 )
         ));
 
         chart.getData().add(series);
-        
-        // Auto-scale the Y-axis to show all data points clearly
-        if (!data.isEmpty()) {
-            double minPrice = data.stream().mapToDouble(StockData::getLow).min().orElse(0);
-            double maxPrice = data.stream().mapToDouble(StockData::getHigh).max().orElse(0);
-            double padding = (maxPrice - minPrice) * 0.1; // 10% padding
-            
-            NumberAxis yAxis = (NumberAxis) chart.getYAxis();
-            yAxis.setLowerBound(minPrice - padding);
-            yAxis.setUpperBound(maxPrice + padding);
-            yAxis.setTickUnit((maxPrice - minPrice) / 10);
+        chartSeries = series;
+    }
+
+    // Runs off the FX thread: reads the stored window of every watched symbol, then computes
+    // their indicators in one parallel pass on the FX thread
+    private void primeIndicators() {
+        Map<String, PriceSeries> windows = new LinkedHashMap<>();
+        for (String symbol : watchlist.getSymbols()) {
+            try {
+                windows.put(symbol, PriceSeries.of(MarketDataService.loadStored(symbol, FetchPipeline.CHART_BARS)));
+            } catch (SQLException e) {
+                // Computed from the first refresh instead
+                INDICATOR_PRIME_FAILURES.increment();
+            }
+        }
+        Platform.runLater(() -> {
+            windows.remove(chartSymbol);
+            indicators.updateAll(windows);
+        });
+    }
+
+    // Draw the ticked indicators for the bars on the chart
+    private void updateOverlays() {
+        if (chartPrices == null) {
+            return;
+        }
+        List<IndicatorSeries> outputs = indicators.update(chartSymbol, chartPrices);
+        List<LineOverlay> lines = new ArrayList<>();
+        for (int i = 0; i < outputs.size(); i++) {
+            if (!((CheckMenuItem) indicatorMenu.getItems().get(i)).isSelected()) continue;
+            IndicatorSeries output = outputs.get(i);
+            for (int line = 0; line < output.lines(); line++) {
+                lines.add(new LineOverlay(chartPrices, output, line, INDICATOR_COLORS[i]));
+            }
+        }
+        chart.setOverlays(lines);
+    }
+
+    // Same rule as the chart: same period replaces the last bar, a later one is appended
+    private static void applyLastBar(PriceSeries prices, StockData bar) {
+        long time = bar.getEpochSecond();
+        long last = prices.isEmpty() ? Long.MIN_VALUE : prices.getTime(prices.size() - 1);
+        if (time == last) {
+            prices.replaceLast(bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume());
+        } else if (time > last) {
+            prices.append(bar);
+        }
+    }
+
+    private void setLive(boolean live) {
+        if (liveTask != null) {
+            liveTask.cancel(false);
+            liveTask = null;
+        }
+        if (!live) {
+            return;
+        }
+        if (chartSymbol == null) {
+            showStatus("Load a chart before going live", "error");
+            liveToggle.setSelected(false);
+            return;
+        }
+        if (livePoller == null) {
+            livePoller = Executors.newSingleThreadScheduledExecutor(DaemonThreads.named("live-quotes"));
+        }
+        liveTask = livePoller.scheduleWithFixedDelay(this::pollQuote,
+                0, LIVE_POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        showStatus("Live updates on for " + chartSymbol, "info");
+    }
+
+    // Runs on the poller thread; quotes queue behind interactive fetches in the rate limiter
+    private void pollQuote() {
+        String symbol = chartSymbol;
+        try {
+            StockData quote = ApiClient.getGlobalQuote(symbol, RateLimiter.Priority.BACKGROUND);
+            alertEngine.onQuote(symbol, quote);
+            Platform.runLater(() -> {
+                if (symbol.equals(chartSymbol) && liveToggle.isSelected()) {
+                    if (chartSeries != null) {
+                        chart.updateLastBar(chartSeries, quote);
+                        applyLastBar(chartPrices, quote);
+                    } else {
+                        chart.updateLastBar(quote);
+                    }
+                    // Only the new or revised bar is fed to the indicators
+                    indicators.update(chartSymbol, chartPrices);
+                    chart.repaintOverlays();
+                }
+            });
+        } catch (IOException e) {
+            Platform.runLater(() -> showStatus("Live quote failed: " + e.getMessage(), "error"));
+        } catch (RuntimeException e) {
+            Platform.runLater(() -> handleApiError(e, symbol));
         }
     }
 
-    private boolean isValidSymbol(String symbol) {
+    static boolean isValidSymbol(String symbol) {
         return symbol.matches("^[A-Z]{1,5}$");
     }
 
@@ -257,7 +583,7 @@ public class MainApp extends Application {
 
     private void handleApiError(RuntimeException ex, String symbol) {
         if (ex.getMessage().contains("Rate Limit")) {
-            ApiClient.startRateLimitTimer();
+            ApiClient.reportRateLimited();
             showStatus("API Limit: " + ex.getMessage(), "error");
         } else if (ex.getMessage().contains("No time series")) {
             showStatus("No data available for " + symbol, "error");
@@ -273,6 +599,8 @@ public class MainApp extends Application {
         
         if ("error".equals(type)) {
             statusLabel.setStyle(baseStyle + "-fx-text-fill: #E74C3C; -fx-background-color: #FADBD8; -fx-border-color: #E74C3C;");
+        } else if ("info".equals(type)) {
+            statusLabel.setStyle(baseStyle + "-fx-text-fill: #2980B9; -fx-background-color: #EBF5FB; -fx-border-color: #3498DB;");
         } else {
             statusLabel.setStyle(baseStyle + "-fx-text-fill: #27AE60; -fx-background-color: #D5F4E6; -fx-border-color: #27AE60;");
         }
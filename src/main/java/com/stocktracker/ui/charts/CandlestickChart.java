@@ -1,8 +1,15 @@
 package com.stocktracker.ui.charts;
 
+import com.stocktracker.metrics.LatencyHistogram;
+import com.stocktracker.metrics.Metrics;
+import com.stocktracker.models.PriceSeries;
 import com.stocktracker.models.StockData;
 import javafx.collections.FXCollections;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.Node;
 import javafx.scene.chart.Axis;
+import javafx.scene.chart.ValueAxis;
 import javafx.scene.chart.XYChart;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.LinearGradient;
@@ -13,7 +20,9 @@ import javafx.scene.Group;
 import javafx.scene.control.Tooltip;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.effect.Glow;
+import javafx.event.EventHandler;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.text.Text;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
@@ -23,9 +32,13 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.time.format.DateTimeFormatter;
 
-public class CandlestickChart extends XYChart<String, Number> {
+public class CandlestickChart extends XYChart<Number, Number> {
 
     private static final double CANDLE_WIDTH = 20;
     private static final double WICK_WIDTH = 2;
@@ -43,42 +56,569 @@ public class CandlestickChart extends XYChart<String, Number> {
     private static final Color WICK_COLOR = Color.rgb(33, 33, 33);
     private static final Color SHADOW_COLOR = Color.rgb(0, 0, 0, 0.3);
 
-    public CandlestickChart(Axis<String> xAxis, Axis<Number> yAxis) {
+    // Effects are immutable in use and shared by every candle instead of allocated per layout
+    private static final DropShadow BODY_SHADOW =
+            new DropShadow(SHADOW_RADIUS, SHADOW_SPREAD, SHADOW_SPREAD, SHADOW_COLOR);
+    private static final DropShadow BODY_HOVER_SHADOW = new DropShadow(8, 2, 2, Color.rgb(0, 0, 0, 0.4));
+    private static final Glow WICK_HOVER_GLOW = new Glow(0.3);
+
+    private static final LatencyHistogram LAYOUT_LATENCY = Metrics.histogram("ui.chart.layout");
+
+    // NODES builds a Group per candle (effects, per-candle hover); CANVAS paints every
+    // candle into one Canvas in a single pass and scales to very large series
+    public enum RenderMode { NODES, CANVAS }
+
+    private RenderMode renderMode = RenderMode.NODES;
+    private final Canvas canvas = new Canvas();
+    // One tooltip for the whole chart, filled in from the hovered bar
+    private final Tooltip hoverTooltip = new Tooltip();
+    private Object tooltipSource;
+
+    // Canvas mode: one level-of-detail pyramid per series, rebuilt only when data changes.
+    // Buckets closer than this many pixels are drawn from the next coarser level.
+    private static final double MIN_CANDLE_SPACING = 3;
+    private final List<CandleLayer> layers = new ArrayList<>();
+    private boolean layersDirty = true;
+    // Bars painted straight from columns, with no XYChart.Data behind them (canvas mode only)
+    private PriceSeries priceSeries;
+    private CandleLayer hoveredLayer;
+    private int hoveredLevel = -1;
+    private int hoveredIndex = -1;
+
+    // Zoom and pan: the x axis range is the viewport, and only bars inside it are laid out
+    private static final double ZOOM_STEP = 0.8;
+    private static final int MIN_VISIBLE_BARS = 5;
+    private double dragStartX = Double.NaN;
+    private double dragStartLower;
+    private double dragStartUpper;
+
+    // Linear x transform captured at the start of each layout pass
+    private double xLower;
+    private double xScale;
+
+    // Live updates patch the forming bar in place. When nothing but that bar changed since
+    // the last layout and the axes did not move, only its column is repainted.
+    private CandleLayer liveLayer;
+    private boolean fullRepaint = true;
+    private double visibleLow = Double.MAX_VALUE;
+    private double visibleHigh = -Double.MAX_VALUE;
+    private final double[] paintedGeometry = new double[6];
+    private final List<Node> released = new ArrayList<>();
+
+    // Indicator lines, painted on a canvas above the candles in either render mode
+    private final List<LineOverlay> overlays = new ArrayList<>();
+    private final Canvas overlayCanvas = new Canvas();
+
+    // Linear y transform, valid when the y axis is a ValueAxis (yScale is NaN otherwise)
+    private double yLower;
+    private double yScale = Double.NaN;
+    private double yOrigin;
+
+    public CandlestickChart(ValueAxis<Number> xAxis, Axis<Number> yAxis) {
         super(xAxis, yAxis);
         setAnimated(false);
         setData(FXCollections.observableArrayList());
         
         // Set chart styling
         setStyle("-fx-background-color: #FAFAFA; -fx-border-color: #E0E0E0; -fx-border-width: 1;");
+
+        hoverTooltip.setStyle("-fx-background-color: #2C3E50; -fx-text-fill: white; -fx-font-size: 12px;");
+        canvas.setOnMouseMoved(this::handleCanvasHover);
+        canvas.setOnMouseExited(e -> hideCanvasTooltip());
+        overlayCanvas.setMouseTransparent(true);
+
+        addEventHandler(ScrollEvent.SCROLL, this::handleZoom);
+        addEventHandler(MouseEvent.MOUSE_PRESSED, this::handlePanStart);
+        addEventHandler(MouseEvent.MOUSE_DRAGGED, this::handlePan);
+        addEventHandler(MouseEvent.MOUSE_RELEASED, e -> dragStartX = Double.NaN);
+        addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
+            if (e.getClickCount() == 2) resetZoom();
+        });
+    }
+
+    private ValueAxis<Number> timeAxis() {
+        return (ValueAxis<Number>) getXAxis();
+    }
+
+    // Show all bars again
+    public void resetZoom() {
+        if (!timeAxis().isAutoRanging()) {
+            timeAxis().setAutoRanging(true);
+            fullRepaint = true;
+            updateAxisRange();
+            requestChartLayout();
+        }
+    }
+
+    // Apply a quote or bar to the end of the series: a bar for the same period as the last one
+    // replaces it in place (the forming candle), a later one is appended, older ones are ignored
+    public void updateLastBar(Series<Number, Number> series, StockData bar) {
+        List<Data<Number, Number>> items = series.getData();
+        long time = bar.getEpochSecond();
+        if (!items.isEmpty()) {
+            Data<Number, Number> last = items.get(items.size() - 1);
+            double lastTime = last.getXValue().doubleValue();
+            if (time < lastTime) return;
+            if (time == lastTime) {
+                last.setExtraValue(bar);
+                if (last.getYValue().doubleValue() != bar.getClose()) {
+                    // Calls back through dataItemChanged; reading the value above makes sure it fires
+                    last.setYValue(bar.getClose());
+                } else {
+                    lastBarChanged(last);
+                }
+                return;
+            }
+        }
+        items.add(new Data<>(time, bar.getClose(), bar));
+    }
+
+    // Same rules for the bars given to setPriceSeries
+    public void updateLastBar(StockData bar) {
+        if (priceSeries == null) return;
+        long time = bar.getEpochSecond();
+        CandleLayer layer = layersDirty ? null : priceLayer();
+        if (!priceSeries.isEmpty()) {
+            long lastTime = priceSeries.getTime(priceSeries.size() - 1);
+            if (time < lastTime) return;
+            if (time == lastTime) {
+                if (layer == null) {
+                    priceSeries.replaceLast(bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(),
+                            bar.getVolume());
+                    invalidateLayers();
+                } else {
+                    liveBarChanged(layer, time, bar);
+                }
+                return;
+            }
+        }
+        if (layer == null) {
+            priceSeries.append(bar);
+            invalidateLayers();
+        } else {
+            layer.append(time, bar);
+            fullRepaint = true;
+            updateAxisRange();
+            requestChartLayout();
+        }
+    }
+
+    // Replace the columns painted alongside (or instead of) the chart's series, e.g. a long
+    // history that is cheaper to keep as a PriceSeries than as one Data per bar. Switches to
+    // canvas mode; null removes them. The chart keeps the series and updates it through
+    // updateLastBar, so call this again after changing it elsewhere.
+    public void setPriceSeries(PriceSeries prices) {
+        priceSeries = prices;
+        if (prices != null) {
+            setRenderMode(RenderMode.CANVAS);
+        }
+        invalidateLayers();
+    }
+
+    public PriceSeries getPriceSeries() {
+        return priceSeries;
+    }
+
+    // Replace the indicator lines drawn over the candles; they count towards the price range
+    public void setOverlays(List<LineOverlay> lines) {
+        overlays.clear();
+        overlays.addAll(lines);
+        if (overlays.isEmpty()) {
+            getPlotChildren().remove(overlayCanvas);
+        } else if (!getPlotChildren().contains(overlayCanvas)) {
+            getPlotChildren().add(overlayCanvas);
+        }
+        fullRepaint = true;
+        updateAxisRange();
+        requestChartLayout();
+    }
+
+    public List<LineOverlay> getOverlays() {
+        return Collections.unmodifiableList(overlays);
+    }
+
+    // The overlays' indicator values changed in place (e.g. after a live bar)
+    public void repaintOverlays() {
+        requestChartLayout();
+    }
+
+    private void invalidateLayers() {
+        layersDirty = true;
+        fullRepaint = true;
+        updateAxisRange();
+        requestChartLayout();
+    }
+
+    // A replaced last bar of a series
+    private void lastBarChanged(Data<Number, Number> item) {
+        CandleLayer layer = layersDirty ? null : layerEndingWith(item);
+        if (layer == null) {
+            layersDirty = true;
+            fullRepaint = true;
+            requestChartLayout();
+            return;
+        }
+        liveBarChanged(layer, item.getXValue().doubleValue(), (StockData) item.getExtraValue());
+    }
+
+    // Patch the pyramid and the visible price range for a replaced last bar: O(log n)
+    private void liveBarChanged(CandleLayer layer, double time, StockData stock) {
+        layer.replaceLast(stock);
+        hoveredIndex = -1; // Refresh the tooltip text on the next mouse move
+
+        ValueAxis<Number> xAxis = timeAxis();
+        boolean visible = xAxis.isAutoRanging()
+                || (time >= xAxis.getLowerBound() && time <= xAxis.getUpperBound());
+        if (visible && getYAxis().isAutoRanging()
+                && (stock.getLow() < visibleLow || stock.getHigh() > visibleHigh)) {
+            visibleLow = Math.min(visibleLow, stock.getLow());
+            visibleHigh = Math.max(visibleHigh, stock.getHigh());
+            getYAxis().invalidateRange(List.of(visibleLow, visibleHigh));
+        }
+        liveLayer = layer;
+        requestChartLayout();
+    }
+
+    private CandleLayer layerEndingWith(Data<Number, Number> item) {
+        for (CandleLayer layer : layers) {
+            if (layer.items != null && layer.lastItem() == item) return layer;
+        }
+        return null;
+    }
+
+    private CandleLayer priceLayer() {
+        for (CandleLayer layer : layers) {
+            if (layer.items == null) return layer;
+        }
+        return null;
+    }
+
+    private CandleLayer layerFor(Series<Number, Number> series) {
+        for (CandleLayer layer : layers) {
+            if (layer.series == series) return layer;
+        }
+        return null;
+    }
+
+    private void handleZoom(ScrollEvent event) {
+        if (event.getDeltaY() == 0 || !inPlotArea(event.getSceneX(), event.getSceneY())) return;
+        ValueAxis<Number> axis = timeAxis();
+        double anchor = axis.getValueForDisplay(axis.sceneToLocal(event.getSceneX(), event.getSceneY()).getX())
+                .doubleValue();
+        double factor = event.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP;
+        double lower = anchor - (anchor - axis.getLowerBound()) * factor;
+        double upper = anchor + (axis.getUpperBound() - anchor) * factor;
+        setViewport(lower, upper);
+        event.consume();
+    }
+
+    private void handlePanStart(MouseEvent event) {
+        if (!event.isPrimaryButtonDown() || !inPlotArea(event.getSceneX(), event.getSceneY())) return;
+        dragStartX = event.getSceneX();
+        dragStartLower = timeAxis().getLowerBound();
+        dragStartUpper = timeAxis().getUpperBound();
+    }
+
+    private void handlePan(MouseEvent event) {
+        if (Double.isNaN(dragStartX)) return;
+        double shift = (event.getSceneX() - dragStartX) / timeAxis().getScale();
+        setViewport(dragStartLower - shift, dragStartUpper - shift);
+        hideCanvasTooltip();
+    }
+
+    // Clamp the requested range to the loaded bars and apply it to the x axis
+    private void setViewport(double lower, double upper) {
+        if (layersDirty) rebuildLayers();
+        if (layers.isEmpty()) return;
+        double first = Double.MAX_VALUE;
+        double last = -Double.MAX_VALUE;
+        double spacing = Double.MAX_VALUE;
+        for (CandleLayer layer : layers) {
+            first = Math.min(first, layer.firstTime());
+            last = Math.max(last, layer.lastTime());
+            spacing = Math.min(spacing, layer.averageSpacing);
+        }
+        double minSpan = MIN_VISIBLE_BARS * spacing;
+        double maxSpan = last - first + 2 * spacing;
+        double span = Math.max(minSpan, Math.min(maxSpan, upper - lower));
+        lower = Math.max(first - spacing, Math.min(lower, last + spacing - span));
+
+        ValueAxis<Number> axis = timeAxis();
+        axis.setAutoRanging(false);
+        axis.setLowerBound(lower);
+        axis.setUpperBound(lower + span);
+        fullRepaint = true;
+        updateAxisRange();
+        requestChartLayout();
+    }
+
+    private boolean inPlotArea(double sceneX, double sceneY) {
+        double x = getXAxis().sceneToLocal(sceneX, sceneY).getX();
+        double y = getYAxis().sceneToLocal(sceneX, sceneY).getY();
+        return x >= 0 && x <= getXAxis().getWidth() && y >= 0 && y <= getYAxis().getHeight();
+    }
+
+    // X follows the loaded bars (or the zoomed viewport); Y spans the lows and highs of
+    // the visible bars, so wicks are never clipped and zooming in rescales prices
+    @Override
+    protected void updateAxisRange() {
+        if (!fullRepaint && liveLayer != null) {
+            return; // lastBarChanged already widened the price range if it had to
+        }
+        if (layersDirty) rebuildLayers();
+        ValueAxis<Number> xAxis = timeAxis();
+        boolean allVisible = xAxis.isAutoRanging();
+        if (allVisible) {
+            List<Number> extent = new ArrayList<>();
+            for (CandleLayer layer : layers) {
+                extent.add(layer.firstTime());
+                extent.add(layer.lastTime());
+            }
+            xAxis.invalidateRange(extent);
+        }
+
+        Axis<Number> yAxis = getYAxis();
+        if (!yAxis.isAutoRanging()) return;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (CandleLayer layer : layers) {
+            OhlcPyramid.Level bars = layer.pyramid.level(0);
+            int from = allVisible ? 0 : bars.search(xAxis.getLowerBound());
+            int to = allVisible ? bars.size() : Math.min(bars.size(), bars.search(xAxis.getUpperBound()) + 1);
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, bars.getLow(i));
+                max = Math.max(max, bars.getHigh(i));
+            }
+        }
+        for (LineOverlay overlay : overlays) {
+            PriceSeries bars = overlay.getBars();
+            int size = overlay.size();
+            int from = allVisible ? 0 : bars.lowerBound((long) Math.ceil(xAxis.getLowerBound()));
+            int to = allVisible ? size : Math.min(size, bars.lowerBound((long) Math.floor(xAxis.getUpperBound()) + 1));
+            for (int i = from; i < to; i++) {
+                double value = overlay.value(i);
+                if (Double.isNaN(value)) continue;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        visibleLow = min;
+        visibleHigh = max;
+        if (min <= max) {
+            yAxis.invalidateRange(List.of(min, max));
+        }
+    }
+
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    public void setRenderMode(RenderMode mode) {
+        if (mode == renderMode) return;
+        // Drop the nodes of the old mode; the new mode creates what it needs on layout
+        List<Node> oldNodes = new ArrayList<>();
+        for (Series<Number, Number> series : getData()) {
+            for (Data<Number, Number> item : series.getData()) {
+                if (item.getNode() != null) {
+                    oldNodes.add(item.getNode());
+                    item.setNode(null);
+                }
+            }
+        }
+        oldNodes.add(canvas);
+        getPlotChildren().removeAll(oldNodes);
+        fullRepaint = true;
+        hideCanvasTooltip();
+        renderMode = mode;
+        for (CandleLayer layer : layers) {
+            layer.nodeFrom = 0;
+            layer.nodeTo = 0;
+        }
+        if (mode == RenderMode.CANVAS) {
+            getPlotChildren().add(canvas);
+        }
+        requestChartLayout();
     }
 
     @Override
     protected void layoutPlotChildren() {
-        if (getData().isEmpty()) return;
-
-        for (Series<String, Number> series : getData()) {
-            for (Data<String, Number> item : series.getData()) {
-                Group nodeGroup = (Group) item.getNode();
-                if (nodeGroup == null) {
-                    nodeGroup = new Group();
-                    item.setNode(nodeGroup);
-                    getPlotChildren().add(nodeGroup);
+        long start = System.nanoTime();
+        layoutCandles();
+        if (!overlays.isEmpty()) {
+            paintOverlays();
+        }
+        LAYOUT_LATENCY.recordSince(start);
+    }
+
+    private void layoutCandles() {
+        if (layersDirty) {
+            rebuildLayers();
+        }
+        ValueAxis<Number> xAxis = timeAxis();
+        xLower = xAxis.getLowerBound();
+        xScale = xAxis.getScale();
+
+        boolean geometryChanged = updatePaintedGeometry();
+        CandleLayer live = liveLayer;
+        boolean liveOnly = !fullRepaint && !geometryChanged && live != null && layers.contains(live);
+        liveLayer = null;
+        fullRepaint = false;
+        if (liveOnly) {
+            repaintLastBar(live);
+            return;
+        }
+
+        if (renderMode == RenderMode.CANVAS) {
+            layoutCanvas();
+            return;
+        }
+        for (CandleLayer layer : layers) {
+            // Price series layers have no Data to hang nodes on
+            if (layer.items == null) continue;
+            placeLayer(layer, 0);
+            layoutNodes(layer);
+        }
+    }
+
+    // Each line is one path over its visible points, thinned to about two points per pixel
+    private void paintOverlays() {
+        List<Node> plotChildren = getPlotChildren();
+        if (plotChildren.get(plotChildren.size() - 1) != overlayCanvas) {
+            overlayCanvas.toFront();
+        }
+        double width = getXAxis().getWidth();
+        double height = getYAxis().getHeight();
+        overlayCanvas.setWidth(width);
+        overlayCanvas.setHeight(height);
+        GraphicsContext g = overlayCanvas.getGraphicsContext2D();
+        g.clearRect(0, 0, width, height);
+        g.setLineWidth(1.5);
+
+        ValueAxis<Number> xAxis = timeAxis();
+        for (LineOverlay overlay : overlays) {
+            PriceSeries bars = overlay.getBars();
+            int size = overlay.size();
+            int from = Math.max(0, bars.lowerBound((long) Math.floor(xAxis.getLowerBound())) - 1);
+            int to = Math.min(size, bars.lowerBound((long) Math.ceil(xAxis.getUpperBound())) + 1);
+            int stride = Math.max(1, (int) ((to - from) / Math.max(1, width * 2)));
+
+            g.setStroke(overlay.getColor());
+            g.beginPath();
+            boolean drawing = false;
+            for (int i = from; i < to; i += stride) {
+                double value = overlay.value(i);
+                if (Double.isNaN(value)) {
+                    drawing = false; // Warm-up bars leave a gap
+                    continue;
                 }
+                double x = toPixel(bars.getTime(i));
+                double y = toPixelY(value);
+                if (drawing) {
+                    g.lineTo(x, y);
+                } else {
+                    g.moveTo(x, y);
+                    drawing = true;
+                }
+            }
+            g.stroke();
+        }
+    }
 
-                StockData stock = (StockData) item.getExtraValue();
-                if (stock == null) continue;
+    // Remember the axis transforms and plot size; true when any of them moved
+    private boolean updatePaintedGeometry() {
+        Axis<Number> yAxis = getYAxis();
+        yLower = Double.NaN;
+        yScale = Double.NaN;
+        if (yAxis instanceof ValueAxis) {
+            ValueAxis<Number> valueAxis = (ValueAxis<Number>) yAxis;
+            yLower = valueAxis.getLowerBound();
+            yScale = valueAxis.getScale();
+            yOrigin = valueAxis.getDisplayPosition(yLower);
+        }
+        // A non-numeric y axis (NaN scale) always repaints fully
+        boolean changed = Double.isNaN(yScale)
+                || paintedGeometry[0] != xLower || paintedGeometry[1] != xScale
+                || paintedGeometry[2] != yLower || paintedGeometry[3] != yScale
+                || paintedGeometry[4] != getXAxis().getWidth() || paintedGeometry[5] != yAxis.getHeight();
+        paintedGeometry[0] = xLower;
+        paintedGeometry[1] = xScale;
+        paintedGeometry[2] = yLower;
+        paintedGeometry[3] = yScale;
+        paintedGeometry[4] = getXAxis().getWidth();
+        paintedGeometry[5] = yAxis.getHeight();
+        return changed;
+    }
+
+    // Repaint only the column of the forming candle
+    private void repaintLastBar(CandleLayer layer) {
+        if (renderMode == RenderMode.NODES) {
+            if (layer.items == null) return;
+            Data<Number, Number> item = layer.lastItem();
+            if (item.getNode() != null) {
+                drawCandlestick(item, (Group) item.getNode(), (StockData) item.getExtraValue(), layer.bodyWidth);
+            }
+            return;
+        }
+
+        OhlcPyramid.Level level = layer.pyramid.level(layer.level);
+        int bucket = level.size() - 1;
+        if (bucket < layer.from || bucket >= layer.to) return;
+        double x = toPixel(level.center(bucket));
+        double half = layer.bodyWidth / 2 + 2;
+        double height = canvas.getHeight();
 
-                drawCandlestick(item, nodeGroup, stock);
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.save();
+        g.beginPath();
+        g.rect(x - half, 0, 2 * half, height);
+        g.clip();
+        g.clearRect(x - half, 0, 2 * half, height);
+        // Other series may have candles under the same column
+        for (CandleLayer other : layers) {
+            OhlcPyramid.Level otherLevel = other.pyramid.level(other.level);
+            int from = Math.max(other.from, otherLevel.search(toPosition(x - half - other.bodyWidth)));
+            int to = Math.min(other.to, otherLevel.search(toPosition(x + half + other.bodyWidth)) + 1);
+            paintLayer(g, other, from, to);
+        }
+        g.restore();
+    }
+
+    // Materialize nodes only for bars in the viewport; bars that scrolled out give theirs back
+    private void layoutNodes(CandleLayer layer) {
+        released.clear();
+        for (int i = layer.nodeFrom; i < layer.nodeTo; i++) {
+            if (i >= layer.from && i < layer.to) continue;
+            Data<Number, Number> item = layer.items.get(i);
+            if (item.getNode() != null) {
+                released.add(item.getNode());
+                item.setNode(null);
+            }
+        }
+        if (!released.isEmpty()) {
+            getPlotChildren().removeAll(released);
+            released.clear();
+        }
+
+        for (int i = layer.from; i < layer.to; i++) {
+            Data<Number, Number> item = layer.items.get(i);
+            Group nodeGroup = (Group) item.getNode();
+            if (nodeGroup == null) {
+                nodeGroup = createCandleNode();
+                item.setNode(nodeGroup);
+                getPlotChildren().add(nodeGroup);
             }
+            drawCandlestick(item, nodeGroup, (StockData) item.getExtraValue(), layer.bodyWidth);
         }
+        layer.nodeFrom = layer.from;
+        layer.nodeTo = layer.to;
     }
 
-    private void drawCandlestick(Data<String, Number> item, Group nodeGroup, StockData stock) {
-        double x = getXAxis().getDisplayPosition(item.getXValue());
-        double yOpen = getYAxis().getDisplayPosition(stock.getOpen());
-        double yClose = getYAxis().getDisplayPosition(stock.getClose());
-        double yHigh = getYAxis().getDisplayPosition(stock.getHigh());
-        double yLow = getYAxis().getDisplayPosition(stock.getLow());
+    private void drawCandlestick(Data<Number, Number> item, Group nodeGroup, StockData stock, double bodyWidth) {
+        double x = toPixel(item.getXValue().doubleValue());
+        double yOpen = toPixelY(stock.getOpen());
+        double yClose = toPixelY(stock.getClose());
+        double yHigh = toPixelY(stock.getHigh());
+        double yLow = toPixelY(stock.getLow());
 
         // Determine if bullish or bearish
         boolean isBullish = stock.getClose() > stock.getOpen();
@@ -89,23 +629,185 @@ public class CandlestickChart extends XYChart<String, Number> {
         double bodyTop = Math.min(yOpen, yClose);
         double bodyHeight = Math.max(Math.abs(yOpen - yClose), 1); // Minimum height of 1
 
-        // Create or update body rectangle
+        // Update body rectangle
         Rectangle body = getOrCreateRectangle(nodeGroup, 0);
-        updateRectangle(body, x - CANDLE_WIDTH/2, bodyTop, CANDLE_WIDTH, bodyHeight, fillColor, strokeColor);
+        updateRectangle(body, x - bodyWidth/2, bodyTop, bodyWidth, bodyHeight, fillColor, strokeColor);
 
-        // Create or update wick
+        // Update wick
         Line wick = getOrCreateLine(nodeGroup, 1);
         updateLine(wick, x, yHigh, x, yLow, WICK_COLOR, WICK_WIDTH);
 
-        // Add shadow effect
-        DropShadow shadow = new DropShadow(SHADOW_RADIUS, SHADOW_SPREAD, SHADOW_SPREAD, SHADOW_COLOR);
-        body.setEffect(shadow);
+        // The hover handlers read the bar from here when needed
+        nodeGroup.setUserData(stock);
+    }
+
+    // Candle node with its shapes, shadow and hover handlers, set up once per node
+    private Group createCandleNode() {
+        Rectangle body = new Rectangle();
+        body.setEffect(BODY_SHADOW);
+        body.setOnMouseEntered(bodyEntered);
+        body.setOnMouseExited(bodyExited);
+
+        Line wick = new Line();
+        wick.setOnMouseEntered(wickEntered);
+        wick.setOnMouseExited(wickExited);
+
+        Group nodeGroup = new Group(body, wick);
+        nodeGroup.setOnMouseEntered(candleEntered);
+        nodeGroup.setOnMouseExited(candleExited);
+        return nodeGroup;
+    }
+
+    private double toPixelY(double value) {
+        return Double.isNaN(yScale)
+                ? getYAxis().getDisplayPosition(value)
+                : yOrigin + (value - yLower) * yScale;
+    }
+
+    private void layoutCanvas() {
+        double width = getXAxis().getWidth();
+        double height = getYAxis().getHeight();
+        canvas.setWidth(width);
+        canvas.setHeight(height);
+
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.clearRect(0, 0, width, height);
+        for (CandleLayer layer : layers) {
+            placeLayer(layer, MIN_CANDLE_SPACING);
+            paintLayer(g, layer, layer.from, layer.to);
+        }
+    }
+
+    // The only O(bars) step; resizing, zooming and panning work on the pyramid
+    private void rebuildLayers() {
+        layers.clear();
+        hideCanvasTooltip();
+        for (Series<Number, Number> series : getData()) {
+            List<Data<Number, Number>> items = new ArrayList<>(series.getData().size());
+            for (Data<Number, Number> item : series.getData()) {
+                if (item.getExtraValue() instanceof StockData) {
+                    items.add(item);
+                }
+            }
+            if (items.isEmpty()) continue;
+            // The range index needs ascending timestamps
+            for (int i = 1; i < items.size(); i++) {
+                if (items.get(i).getXValue().doubleValue() < items.get(i - 1).getXValue().doubleValue()) {
+                    items.sort(Comparator.comparingDouble(item -> item.getXValue().doubleValue()));
+                    break;
+                }
+            }
+
+            // Columns for the pyramid and tooltips; a repeated timestamp keeps its first item
+            PriceSeries prices = new PriceSeries(items.size());
+            List<Data<Number, Number>> placed = new ArrayList<>(items.size());
+            for (Data<Number, Number> item : items) {
+                long time = (long) item.getXValue().doubleValue();
+                if (!prices.isEmpty() && time <= prices.getTime(prices.size() - 1)) continue;
+                StockData stock = (StockData) item.getExtraValue();
+                prices.append(time, stock.getOpen(), stock.getHigh(), stock.getLow(), stock.getClose(),
+                        stock.getVolume());
+                placed.add(item);
+            }
+            layers.add(new CandleLayer(series, placed, prices));
+        }
+        if (priceSeries != null && !priceSeries.isEmpty()) {
+            layers.add(new CandleLayer(null, null, priceSeries));
+        }
+        layersDirty = false;
+    }
+
+    // Pick the pyramid level for the current zoom and find the buckets inside the viewport
+    private void placeLayer(CandleLayer layer, double minSpacing) {
+        double pixelsPerBar = layer.averageSpacing * xScale;
+        layer.level = minSpacing > 0 ? layer.pyramid.levelFor(pixelsPerBar, minSpacing) : 0;
+        OhlcPyramid.Level level = layer.pyramid.level(layer.level);
+        // Candles take 70% of the space between neighbours, capped at the default width
+        double spacing = pixelsPerBar * level.barsPerBucket();
+        layer.bodyWidth = Math.max(1, Math.min(CANDLE_WIDTH, spacing * 0.7));
+
+        // Binary search the viewport, keeping one bucket of margin for partly visible candles
+        ValueAxis<Number> xAxis = timeAxis();
+        layer.from = Math.max(0, level.search(xAxis.getLowerBound()) - 1);
+        layer.to = Math.min(level.size(), level.search(xAxis.getUpperBound()) + 1);
+    }
+
+    private double toPixel(double position) {
+        return (position - xLower) * xScale;
+    }
+
+    private double toPosition(double pixel) {
+        return xLower + pixel / xScale;
+    }
+
+    private void paintLayer(GraphicsContext g, CandleLayer layer, int from, int to) {
+        OhlcPyramid.Level level = layer.pyramid.level(layer.level);
+
+        // Wicks first, all in one path and one stroke
+        g.setStroke(WICK_COLOR);
+        g.setLineWidth(layer.bodyWidth >= 4 ? WICK_WIDTH : 1);
+        g.beginPath();
+        for (int i = from; i < to; i++) {
+            double x = Math.round(toPixel(level.center(i))) + 0.5;
+            g.moveTo(x, toPixelY(level.getHigh(i)));
+            g.lineTo(x, toPixelY(level.getLow(i)));
+        }
+        g.stroke();
+
+        // Bodies grouped by colour so fill/stroke state changes twice, not per candle
+        paintBodies(g, layer, level, from, to, true);
+        paintBodies(g, layer, level, from, to, false);
+    }
 
-        // Add hover effects
-        setupHoverEffects(body, wick, stock, x, yHigh, yLow);
+    private void paintBodies(GraphicsContext g, CandleLayer layer, OhlcPyramid.Level level, int from, int to,
+                             boolean bullish) {
+        g.setFill(bullish ? BULLISH_FILL : BEARISH_FILL);
+        g.setStroke(bullish ? BULLISH_STROKE : BEARISH_STROKE);
+        g.setLineWidth(1);
+        double bodyWidth = layer.bodyWidth;
+        boolean outline = bodyWidth >= 4;
+        for (int i = from; i < to; i++) {
+            double open = level.getOpen(i);
+            double close = level.getClose(i);
+            if ((close > open) != bullish) continue;
+            double yOpen = toPixelY(open);
+            double yClose = toPixelY(close);
+            double top = Math.min(yOpen, yClose);
+            double bodyHeight = Math.max(Math.abs(yOpen - yClose), 1);
+            double left = toPixel(level.center(i)) - bodyWidth / 2;
+            g.fillRect(left, top, bodyWidth, bodyHeight);
+            if (outline) {
+                g.strokeRect(left, top, bodyWidth, bodyHeight);
+            }
+        }
+    }
+
+    // Hover hit-testing: binary search the drawn level instead of per-candle listeners
+    private void handleCanvasHover(MouseEvent event) {
+        for (CandleLayer layer : layers) {
+            OhlcPyramid.Level level = layer.pyramid.level(layer.level);
+            int index = level.nearest(toPosition(event.getX()));
+            if (index < 0) continue;
+            double reach = Math.max(layer.bodyWidth / 2, 3);
+            if (Math.abs(toPixel(level.center(index)) - event.getX()) > reach) continue;
 
-        // Add tooltip
-        setupTooltip(nodeGroup, stock);
+            if (layer != hoveredLayer || layer.level != hoveredLevel || index != hoveredIndex) {
+                hoveredLayer = layer;
+                hoveredLevel = layer.level;
+                hoveredIndex = index;
+                hoverTooltip.setText(formatTooltip(layer, level, index));
+                tooltipSource = null;
+            }
+            hoverTooltip.show(canvas, event.getScreenX() + 12, event.getScreenY() + 12);
+            return;
+        }
+        hideCanvasTooltip();
+    }
+
+    private void hideCanvasTooltip() {
+        hoveredLayer = null;
+        hoveredIndex = -1;
+        hoverTooltip.hide();
     }
 
     private Rectangle getOrCreateRectangle(Group nodeGroup, int index) {
@@ -151,39 +853,78 @@ public class CandlestickChart extends XYChart<String, Number> {
         line.setStrokeWidth(width);
     }
 
-    private void setupHoverEffects(Rectangle body, Line wick, StockData stock, double x, double yHigh, double yLow) {
-        // Hover effects for body
-        body.setOnMouseEntered(e -> {
-            body.setEffect(new DropShadow(8, 2, 2, Color.rgb(0, 0, 0, 0.4)));
-            body.setScaleX(1.1);
-            body.setScaleY(1.1);
-            wick.setStrokeWidth(WICK_WIDTH * 1.5);
-        });
+    // Hover handlers shared by every candle node; each finds its shapes from the event source
+    private final EventHandler<MouseEvent> bodyEntered = e -> {
+        Rectangle body = (Rectangle) e.getSource();
+        body.setEffect(BODY_HOVER_SHADOW);
+        body.setScaleX(1.1);
+        body.setScaleY(1.1);
+        wickOf(body).setStrokeWidth(WICK_WIDTH * 1.5);
+    };
 
-        body.setOnMouseExited(e -> {
-            body.setEffect(new DropShadow(SHADOW_RADIUS, SHADOW_SPREAD, SHADOW_SPREAD, SHADOW_COLOR));
-            body.setScaleX(1.0);
-            body.setScaleY(1.0);
-            wick.setStrokeWidth(WICK_WIDTH);
-        });
+    private final EventHandler<MouseEvent> bodyExited = e -> {
+        Rectangle body = (Rectangle) e.getSource();
+        body.setEffect(BODY_SHADOW);
+        body.setScaleX(1.0);
+        body.setScaleY(1.0);
+        wickOf(body).setStrokeWidth(WICK_WIDTH);
+    };
 
-        // Hover effects for wick
-        wick.setOnMouseEntered(e -> {
-            wick.setStrokeWidth(WICK_WIDTH * 2);
-            wick.setEffect(new Glow(0.3));
-        });
+    private final EventHandler<MouseEvent> wickEntered = e -> {
+        Line wick = (Line) e.getSource();
+        wick.setStrokeWidth(WICK_WIDTH * 2);
+        wick.setEffect(WICK_HOVER_GLOW);
+    };
 
-        wick.setOnMouseExited(e -> {
-            wick.setStrokeWidth(WICK_WIDTH);
-            wick.setEffect(null);
-        });
+    private final EventHandler<MouseEvent> wickExited = e -> {
+        Line wick = (Line) e.getSource();
+        wick.setStrokeWidth(WICK_WIDTH);
+        wick.setEffect(null);
+    };
+
+    private final EventHandler<MouseEvent> candleEntered = e -> {
+        Node candle = (Node) e.getSource();
+        if (candle.getUserData() instanceof StockData) {
+            showTooltip(candle.getUserData(), (StockData) candle.getUserData(), candle,
+                    e.getScreenX(), e.getScreenY());
+        }
+    };
+
+    private final EventHandler<MouseEvent> candleExited = e -> hoverTooltip.hide();
+
+    private static Line wickOf(Rectangle body) {
+        return (Line) body.getParent().getChildrenUnmodifiable().get(1);
     }
 
-    private void setupTooltip(Group nodeGroup, StockData stock) {
-        Tooltip tooltip = new Tooltip();
-        tooltip.setStyle("-fx-background-color: #2C3E50; -fx-text-fill: white; -fx-font-size: 12px;");
-        
-        String tooltipText = String.format(
+    // The text is only formatted when the hovered bar changes
+    private void showTooltip(Object source, StockData stock, Node owner, double screenX, double screenY) {
+        if (source != tooltipSource) {
+            tooltipSource = source;
+            hoverTooltip.setText(formatTooltip(stock));
+        }
+        hoverTooltip.show(owner, screenX + 12, screenY + 12);
+    }
+
+    private String formatTooltip(StockData stock) {
+        return formatTooltip(stock.getTimestamp().format(dateFormat), stock.getOpen(), stock.getHigh(),
+                stock.getLow(), stock.getClose(), stock.getVolume());
+    }
+
+    // A merged bucket shows the date range it covers
+    private String formatTooltip(CandleLayer layer, OhlcPyramid.Level level, int index) {
+        PriceSeries bars = layer.prices;
+        int first = level.firstBar(index);
+        int last = Math.min(first + level.barsPerBucket(), bars.size()) - 1;
+        String dates = bars.getTimestamp(first).format(dateFormat);
+        if (last > first) {
+            dates += " - " + bars.getTimestamp(last).format(dateFormat);
+        }
+        return formatTooltip(dates, level.getOpen(index), level.getHigh(index), level.getLow(index),
+                level.getClose(index), level.getVolume(index));
+    }
+
+    private String formatTooltip(String date, double open, double high, double low, double close, long volume) {
+        return String.format(
             "Date: %s\n" +
             "Open: $%s\n" +
             "High: $%s\n" +
@@ -191,55 +932,132 @@ public class CandlestickChart extends XYChart<String, Number> {
             "Close: $%s\n" +
             "Volume: %,d\n" +
             "Change: %s%.2f%%",
-            stock.getTimestamp().format(dateFormat),
-            priceFormat.format(stock.getOpen()),
-            priceFormat.format(stock.getHigh()),
-            priceFormat.format(stock.getLow()),
-            priceFormat.format(stock.getClose()),
-            stock.getVolume(),
-            stock.getClose() > stock.getOpen() ? "+" : "",
-            ((stock.getClose() - stock.getOpen()) / stock.getOpen()) * 100
+            date,
+            priceFormat.format(open),
+            priceFormat.format(high),
+            priceFormat.format(low),
+            priceFormat.format(close),
+            volume,
+            close > open ? "+" : "",
+            ((close - open) / open) * 100
         );
-        
-        tooltip.setText(tooltipText);
-        Tooltip.install(nodeGroup, tooltip);
     }
 
+    // Nodes are created lazily in layoutPlotChildren, and only for bars in the viewport
     @Override
-    protected void dataItemAdded(Series<String, Number> series, int itemIndex, Data<String, Number> item) {
-        Group nodeGroup = new Group();
-        // Initialize with empty shapes
-        nodeGroup.getChildren().addAll(new Rectangle(), new Line());
-        item.setNode(nodeGroup);
-        getPlotChildren().add(nodeGroup);
+    protected void dataItemAdded(Series<Number, Number> series, int itemIndex, Data<Number, Number> item) {
+        fullRepaint = true;
+        // A bar appended after the last one extends the pyramid; anything else rebuilds it
+        CandleLayer layer = layersDirty ? null : layerFor(series);
+        if (layer != null && itemIndex == series.getData().size() - 1
+                && item.getExtraValue() instanceof StockData
+                && (long) item.getXValue().doubleValue() > layer.lastTime()) {
+            layer.append(item);
+        } else {
+            layersDirty = true;
+        }
     }
 
     @Override
-    protected void dataItemRemoved(Data<String, Number> item, Series<String, Number> series) {
-        getPlotChildren().remove(item.getNode());
-        item.setNode(null);
+    protected void dataItemRemoved(Data<Number, Number> item, Series<Number, Number> series) {
+        layersDirty = true;
+        fullRepaint = true;
+        if (item.getNode() != null) {
+            getPlotChildren().remove(item.getNode());
+            item.setNode(null);
+        }
+        removeDataItemFromDisplay(series, item);
     }
 
     @Override
-    protected void dataItemChanged(Data<String, Number> item) {
-        // Handle data changes if needed
+    protected void dataItemChanged(Data<Number, Number> item) {
+        lastBarChanged(item);
     }
 
     @Override
-    protected void seriesAdded(Series<String, Number> series, int seriesIndex) {
-        // Handle series addition
-        for (Data<String, Number> item : series.getData()) {
-            item.setNode(new Group());
-            getPlotChildren().add(item.getNode());
-        }
+    protected void seriesAdded(Series<Number, Number> series, int seriesIndex) {
+        layersDirty = true;
+        fullRepaint = true;
     }
 
     @Override
-    protected void seriesRemoved(Series<String, Number> series) {
-        // Handle series removal
-        for (Data<String, Number> item : series.getData()) {
-            getPlotChildren().remove(item.getNode());
+    protected void seriesRemoved(Series<Number, Number> series) {
+        layersDirty = true;
+        fullRepaint = true;
+        List<Node> seriesNodes = new ArrayList<>();
+        for (Data<Number, Number> item : series.getData()) {
+            if (item.getNode() == null) continue;
+            seriesNodes.add(item.getNode());
             item.setNode(null);
         }
+        getPlotChildren().removeAll(seriesNodes);
+        removeSeriesFromDisplay(series);
+    }
+
+    // A series prepared for painting: its bars in time order with a pyramid over them, plus
+    // the placement from the last layout. Layers for a price series have no series or items.
+    private static final class CandleLayer {
+        private final List<Data<Number, Number>> items;
+        private final Series<Number, Number> series;
+        private final PriceSeries prices;
+        private final OhlcPyramid pyramid;
+        // Mean time between bars, in axis units
+        private double averageSpacing;
+        private int level;
+        private double bodyWidth;
+        // Visible buckets of the current level, [from, to)
+        private int from;
+        private int to;
+        // Bars that may still own a node (node mode), [nodeFrom, nodeTo)
+        private int nodeFrom;
+        private int nodeTo;
+
+        CandleLayer(Series<Number, Number> series, List<Data<Number, Number>> items, PriceSeries prices) {
+            this.series = series;
+            this.items = items;
+            this.prices = prices;
+            this.pyramid = new OhlcPyramid(prices);
+            this.nodeTo = items == null ? 0 : items.size();
+            updateSpacing();
+        }
+
+        private void updateSpacing() {
+            int size = prices.size();
+            averageSpacing = size > 1
+                    ? (double) (prices.getTime(size - 1) - prices.getTime(0)) / (size - 1)
+                    : 24 * 60 * 60;
+        }
+
+        Data<Number, Number> lastItem() {
+            return items.get(items.size() - 1);
+        }
+
+        void append(Data<Number, Number> item) {
+            items.add(item);
+            append((long) item.getXValue().doubleValue(), (StockData) item.getExtraValue());
+        }
+
+        void append(long time, StockData stock) {
+            prices.append(time, stock.getOpen(), stock.getHigh(), stock.getLow(), stock.getClose(),
+                    stock.getVolume());
+            pyramid.append(time, stock.getOpen(), stock.getHigh(), stock.getLow(), stock.getClose(),
+                    stock.getVolume());
+            updateSpacing();
+        }
+
+        void replaceLast(StockData stock) {
+            prices.replaceLast(stock.getOpen(), stock.getHigh(), stock.getLow(), stock.getClose(),
+                    stock.getVolume());
+            pyramid.replaceLast(stock.getOpen(), stock.getHigh(), stock.getLow(), stock.getClose(),
+                    stock.getVolume());
+        }
+
+        long firstTime() {
+            return prices.getTime(0);
+        }
+
+        long lastTime() {
+            return prices.getTime(prices.size() - 1);
+        }
     }
-}
\ No newline at end of file
+}
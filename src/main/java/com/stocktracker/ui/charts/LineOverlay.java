@@ -0,0 +1,42 @@
+package com.stocktracker.ui.charts;
+
+import com.stocktracker.analytics.IndicatorSeries;
+import com.stocktracker.models.PriceSeries;
+import javafx.scene.paint.Color;
+
+// One indicator line drawn over the candles, e.g. a moving average. Values are read from
+// the indicator output at paint time, index-aligned with the bars that give their x position,
+// so an incremental indicator update only needs a repaint.
+public class LineOverlay {
+    private final PriceSeries bars;
+    private final IndicatorSeries values;
+    private final int line;
+    private final Color color;
+
+    public LineOverlay(PriceSeries bars, IndicatorSeries values, int line, Color color) {
+        this.bars = bars;
+        this.values = values;
+        this.line = line;
+        this.color = color;
+    }
+
+    public String getName() {
+        return values.getName(line);
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    PriceSeries getBars() {
+        return bars;
+    }
+
+    int size() {
+        return Math.min(bars.size(), values.size());
+    }
+
+    double value(int index) {
+        return values.get(line, index);
+    }
+}
@@ -0,0 +1,220 @@
+package com.stocktracker.ui.charts;
+
+import com.stocktracker.models.PriceSeries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Level-of-detail aggregation of an OHLCV series. Level 0 holds the bars themselves and
+// every level above merges pairs from the one below, so level k has one bucket per 2^k
+// bars. A bucket opens with its first bar, closes with its last, spans the highest high
+// and lowest low, and sums the volume. Buckets keep the time of their first and last bar
+// so they can be placed on the x axis without going back to the source series. Appending or
+// replacing the last bar updates one bucket per level, so live updates cost O(log n).
+public class OhlcPyramid {
+    private final List<Level> levels = new ArrayList<>();
+
+    // Positions are the bar times in epoch seconds; the series is copied
+    public OhlcPyramid(PriceSeries bars) {
+        int size = bars.size();
+        Level base = new Level(0, size);
+        for (int i = 0; i < size; i++) {
+            base.first[i] = bars.getTime(i);
+            base.last[i] = base.first[i];
+            base.open[i] = bars.getOpen(i);
+            base.high[i] = bars.getHigh(i);
+            base.low[i] = bars.getLow(i);
+            base.close[i] = bars.getClose(i);
+            base.volume[i] = bars.getVolume(i);
+        }
+        base.size = size;
+        levels.add(base);
+
+        for (Level below = base; below.size > 1; below = levels.get(levels.size() - 1)) {
+            Level level = new Level(levels.size(), (below.size + 1) / 2);
+            for (int i = 0; i < level.capacity(); i++) {
+                merge(below, level, i);
+            }
+            level.size = level.capacity();
+            levels.add(level);
+        }
+    }
+
+    // Add a bar after the last one; only the last bucket of each level is touched
+    public void append(double position, double open, double high, double low, double close, long volume) {
+        Level base = levels.get(0);
+        base.ensureCapacity(base.size + 1);
+        base.size++;
+        setLast(position, open, high, low, close, volume);
+    }
+
+    // Replace the values of the last bar, e.g. while it is still forming
+    public void replaceLast(double open, double high, double low, double close, long volume) {
+        Level base = levels.get(0);
+        int last = base.size - 1;
+        setLast(base.first[last], open, high, low, close, volume);
+    }
+
+    private void setLast(double position, double open, double high, double low, double close, long volume) {
+        Level base = levels.get(0);
+        int last = base.size - 1;
+        base.first[last] = position;
+        base.last[last] = position;
+        base.open[last] = open;
+        base.high[last] = high;
+        base.low[last] = low;
+        base.close[last] = close;
+        base.volume[last] = volume;
+
+        // Re-merge the tail bucket upwards, adding a level when the top one splits
+        for (int k = 1; levels.get(k - 1).size > 1 || k < levels.size(); k++) {
+            Level below = levels.get(k - 1);
+            if (k == levels.size()) {
+                levels.add(new Level(k, 1));
+            }
+            Level level = levels.get(k);
+            int bucket = (below.size - 1) / 2;
+            level.ensureCapacity(bucket + 1);
+            merge(below, level, bucket);
+            level.size = bucket + 1;
+        }
+    }
+
+    private static void merge(Level below, Level level, int i) {
+        int left = 2 * i;
+        int right = Math.min(left + 1, below.size - 1);
+        level.first[i] = below.first[left];
+        level.last[i] = below.last[right];
+        level.open[i] = below.open[left];
+        level.close[i] = below.close[right];
+        level.high[i] = Math.max(below.high[left], below.high[right]);
+        level.low[i] = Math.min(below.low[left], below.low[right]);
+        level.volume[i] = right == left ? below.volume[left] : below.volume[left] + below.volume[right];
+    }
+
+    public int levelCount() {
+        return levels.size();
+    }
+
+    public Level level(int k) {
+        return levels.get(k);
+    }
+
+    public int size() {
+        return levels.get(0).size;
+    }
+
+    // Finest level whose buckets are at least minSpacing pixels apart, given how many
+    // pixels one bar gets at full detail
+    public int levelFor(double pixelsPerBar, double minSpacing) {
+        int k = 0;
+        double spacing = pixelsPerBar;
+        while (spacing < minSpacing && k < levels.size() - 1) {
+            spacing *= 2;
+            k++;
+        }
+        return k;
+    }
+
+    public static final class Level {
+        private final int k;
+        private int size;
+        double[] first;
+        double[] last;
+        double[] open;
+        double[] high;
+        double[] low;
+        double[] close;
+        long[] volume;
+
+        Level(int k, int capacity) {
+            this.k = k;
+            first = new double[capacity];
+            last = new double[capacity];
+            open = new double[capacity];
+            high = new double[capacity];
+            low = new double[capacity];
+            close = new double[capacity];
+            volume = new long[capacity];
+        }
+
+        private int capacity() {
+            return open.length;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed <= capacity()) return;
+            int grown = Math.max(needed, capacity() + (capacity() >> 1) + 16);
+            first = Arrays.copyOf(first, grown);
+            last = Arrays.copyOf(last, grown);
+            open = Arrays.copyOf(open, grown);
+            high = Arrays.copyOf(high, grown);
+            low = Arrays.copyOf(low, grown);
+            close = Arrays.copyOf(close, grown);
+            volume = Arrays.copyOf(volume, grown);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int barsPerBucket() {
+            return 1 << k;
+        }
+
+        // Index of the first source bar in bucket i
+        public int firstBar(int i) {
+            return i << k;
+        }
+
+        public double center(int i) {
+            return (first[i] + last[i]) / 2;
+        }
+
+        public double getOpen(int i) {
+            return open[i];
+        }
+
+        public double getHigh(int i) {
+            return high[i];
+        }
+
+        public double getLow(int i) {
+            return low[i];
+        }
+
+        public double getClose(int i) {
+            return close[i];
+        }
+
+        public long getVolume(int i) {
+            return volume[i];
+        }
+
+        // First bucket whose last bar is at or after the position
+        public int search(double position) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (last[mid] < position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Bucket whose centre is closest to the position, or -1 when empty
+        public int nearest(double position) {
+            if (size == 0) return -1;
+            int i = Math.min(search(position), size - 1);
+            if (i > 0 && Math.abs(center(i - 1) - position) < Math.abs(center(i) - position)) {
+                i--;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.stocktracker.ui.charts;
+
+import javafx.scene.chart.ValueAxis;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Numeric x axis over epoch seconds (StockData.getEpochSecond). Tick spacing is picked from
+// a ladder of calendar-friendly steps so labels stay readable at any zoom level, and only
+// the ticks inside the current range are ever created.
+public class TimeAxis extends ValueAxis<Number> {
+    private static final long MINUTE = 60;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    // 1970-01-05 was the first Monday after the epoch
+    private static final long FIRST_MONDAY = 4 * DAY;
+    // Keep tick labels at least this many pixels apart
+    private static final double MIN_TICK_SPACING = 90;
+
+    // Fixed-length steps; beyond two weeks the axis steps in calendar months
+    private static final long[] STEPS = {
+            MINUTE, 5 * MINUTE, 15 * MINUTE, 30 * MINUTE, HOUR, 2 * HOUR, 4 * HOUR, 12 * HOUR,
+            DAY, 2 * DAY, 7 * DAY, 14 * DAY
+    };
+    private static final int[] MONTH_STEPS = {1, 2, 3, 6, 12, 24, 60, 120};
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("MMM dd HH:mm");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("MMM dd");
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("MMM yyyy");
+    private static final DateTimeFormatter YEAR_FORMAT = DateTimeFormatter.ofPattern("yyyy");
+
+    private DateTimeFormatter labelFormat = DAY_FORMAT;
+
+    public TimeAxis() {
+        setMinorTickVisible(false);
+    }
+
+    public TimeAxis(long lowerBound, long upperBound) {
+        super(lowerBound, upperBound);
+        setMinorTickVisible(false);
+    }
+
+    @Override
+    protected Object autoRange(double minValue, double maxValue, double length, double labelSize) {
+        // Half a day either side keeps the first and last candle clear of the plot edge
+        double padding = Math.max((maxValue - minValue) * 0.01, DAY / 2.0);
+        double lower = minValue - padding;
+        double upper = maxValue + padding;
+        return new Range(lower, upper, calculateNewScale(length, lower, upper));
+    }
+
+    @Override
+    protected void setRange(Object range, boolean animate) {
+        Range r = (Range) range;
+        setLowerBound(r.lower);
+        setUpperBound(r.upper);
+        currentLowerBound.set(r.lower);
+        setScale(r.scale);
+    }
+
+    @Override
+    protected Object getRange() {
+        double length = getSide() != null && getSide().isVertical() ? getHeight() : getWidth();
+        return new Range(getLowerBound(), getUpperBound(),
+                calculateNewScale(length, getLowerBound(), getUpperBound()));
+    }
+
+    @Override
+    protected List<Number> calculateTickValues(double length, Object range) {
+        Range r = (Range) range;
+        double span = r.upper - r.lower;
+        if (span <= 0 || length <= 0) {
+            return Collections.emptyList();
+        }
+        double maxTicks = Math.max(1, length / MIN_TICK_SPACING);
+        double minStep = span / maxTicks;
+
+        List<Number> ticks = new ArrayList<>();
+        for (long step : STEPS) {
+            if (step >= minStep) {
+                labelFormat = step < DAY ? TIME_FORMAT : DAY_FORMAT;
+                // Weekly ticks land on Mondays, shorter ones on multiples of the step
+                long offset = step == 7 * DAY || step == 14 * DAY ? FIRST_MONDAY : 0;
+                long tick = (long) Math.ceil((r.lower - offset) / step) * step + offset;
+                for (; tick <= r.upper; tick += step) {
+                    ticks.add(tick);
+                }
+                return ticks;
+            }
+        }
+
+        int months = MONTH_STEPS[MONTH_STEPS.length - 1];
+        for (int candidate : MONTH_STEPS) {
+            if (candidate * 30.4 * DAY >= minStep) {
+                months = candidate;
+                break;
+            }
+        }
+        labelFormat = months >= 12 ? YEAR_FORMAT : MONTH_FORMAT;
+        LocalDate start = toDateTime(r.lower).toLocalDate().withDayOfMonth(1);
+        // Align to the step so e.g. quarterly ticks fall on Jan/Apr/Jul/Oct
+        int monthIndex = start.getYear() * 12 + start.getMonthValue() - 1;
+        start = start.plusMonths((months - monthIndex % months) % months);
+        for (LocalDate date = start; ; date = date.plusMonths(months)) {
+            long tick = date.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+            if (tick > r.upper) break;
+            if (tick >= r.lower) ticks.add(tick);
+        }
+        return ticks;
+    }
+
+    @Override
+    protected List<Number> calculateMinorTickMarks() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    protected String getTickMarkLabel(Number value) {
+        if (getTickLabelFormatter() != null) {
+            return getTickLabelFormatter().toString(value);
+        }
+        return toDateTime(value.doubleValue()).format(labelFormat);
+    }
+
+    @Override
+    public Number toRealValue(double value) {
+        return value;
+    }
+
+    @Override
+    public double toNumericValue(Number value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+
+    // Bar timestamps are stored as local exchange time expressed in UTC seconds
+    private static LocalDateTime toDateTime(double epochSecond) {
+        return LocalDateTime.ofEpochSecond((long) Math.floor(epochSecond), 0, ZoneOffset.UTC);
+    }
+
+    private static final class Range {
+        private final double lower;
+        private final double upper;
+        private final double scale;
+
+        Range(double lower, double upper, double scale) {
+            this.lower = lower;
+            this.upper = upper;
+            this.scale = scale;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.stocktracker.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Thread factories for background executors; daemon threads never keep the JVM alive
+public final class DaemonThreads {
+    private DaemonThreads() {
+    }
+
+    // Every thread gets the same name; for single-thread executors
+    public static ThreadFactory named(String name) {
+        return runnable -> newThread(runnable, name);
+    }
+
+    // name-1, name-2, ... for pools
+    public static ThreadFactory numbered(String prefix) {
+        AtomicInteger ids = new AtomicInteger();
+        return runnable -> newThread(runnable, prefix + "-" + ids.incrementAndGet());
+    }
+
+    private static Thread newThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
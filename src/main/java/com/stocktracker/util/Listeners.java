@@ -0,0 +1,46 @@
+package com.stocktracker.util;
+
+import com.stocktracker.metrics.Counter;
+import com.stocktracker.metrics.Metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+// Listeners that each get their events on their own executor, e.g. Platform::runLater for UI
+// listeners. Safe to add, remove and dispatch from any thread.
+public final class Listeners<L> {
+    private static final Counter DISPATCH_FAILURES = Metrics.counter("listeners.dispatchFailed");
+
+    private final List<Registration<L>> registrations = new CopyOnWriteArrayList<>();
+
+    public void add(L listener, Executor executor) {
+        registrations.add(new Registration<>(listener, executor));
+    }
+
+    public void remove(L listener) {
+        registrations.removeIf(registration -> registration.listener == listener);
+    }
+
+    public void dispatch(Consumer<L> event) {
+        for (Registration<L> registration : registrations) {
+            try {
+                registration.executor.execute(() -> event.accept(registration.listener));
+            } catch (RuntimeException e) {
+                // A rejected or failing listener must not stop the others
+                DISPATCH_FAILURES.increment();
+            }
+        }
+    }
+
+    private static final class Registration<L> {
+        private final L listener;
+        private final Executor executor;
+
+        Registration(L listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.stocktracker.analytics;
+
+import com.stocktracker.models.PriceSeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndicatorEngineTest {
+    private static final List<Indicator> INDICATORS = List.of(
+            Indicators.sma(5), Indicators.ema(10), Indicators.rsi(14), Indicators.macd(12, 26, 9),
+            Indicators.bollinger(20, 2), Indicators.vwap());
+    private static final long START = 1_700_000_000L;
+    private static final long DAY = 86_400;
+
+    @Test
+    void addingBarsOneAtATimeMatchesAFullRecompute() {
+        // Long enough for the window sums to be resynced along the way
+        PriceSeries bars = randomBars(new Random(1), 5_000);
+        IndicatorEngine engine = new IndicatorEngine(INDICATORS);
+
+        for (int n = 1; n <= bars.size(); n++) {
+            engine.update("AAPL", bars.slice(0, n));
+        }
+        assertSameOutputs(IndicatorEngine.compute(bars, INDICATORS), engine.get("AAPL"));
+    }
+
+    @Test
+    void revisingTheNewestBarMatchesAFullRecompute() {
+        Random random = new Random(2);
+        PriceSeries target = randomBars(random, 200);
+        PriceSeries live = new PriceSeries();
+        IndicatorEngine engine = new IndicatorEngine(INDICATORS);
+
+        for (int i = 0; i < target.size(); i++) {
+            // The forming candle is revised a few times before it settles on its final values
+            double price = target.getOpen(i);
+            live.append(target.getTime(i), price, price, price, price, 1);
+            engine.update("MSFT", live);
+            for (int revision = 0; revision < 3; revision++) {
+                double close = price + random.nextGaussian();
+                live.replaceLast(price, Math.max(price, close) + 0.5, Math.min(price, close) - 0.5, close,
+                        1 + random.nextInt(10_000));
+                engine.update("MSFT", live);
+                assertSameOutputs(IndicatorEngine.compute(live, INDICATORS), engine.get("MSFT"));
+            }
+            live.replaceLast(target.getOpen(i), target.getHigh(i), target.getLow(i), target.getClose(i),
+                    target.getVolume(i));
+            engine.update("MSFT", live);
+        }
+        assertSameOutputs(IndicatorEngine.compute(target, INDICATORS), engine.get("MSFT"));
+    }
+
+    @Test
+    void aMovedWindowIsRecomputedFromScratch() {
+        PriceSeries bars = randomBars(new Random(3), 300);
+        IndicatorEngine engine = new IndicatorEngine(INDICATORS);
+
+        engine.update("IBM", bars.slice(0, 200));
+        List<IndicatorSeries> moved = engine.update("IBM", bars.slice(50, 250));
+        assertSameOutputs(IndicatorEngine.compute(bars.slice(50, 250), INDICATORS), moved);
+
+        List<IndicatorSeries> shorter = engine.update("IBM", bars.slice(50, 100));
+        assertSameOutputs(IndicatorEngine.compute(bars.slice(50, 100), INDICATORS), shorter);
+    }
+
+    @Test
+    void updateAllMatchesAFullRecomputePerSymbol() {
+        Random random = new Random(4);
+        Map<String, PriceSeries> first = new LinkedHashMap<>();
+        Map<String, PriceSeries> second = new LinkedHashMap<>();
+        // More symbols than one fork-join leaf takes, some of them new in the second pass
+        for (int s = 0; s < 30; s++) {
+            PriceSeries bars = randomBars(random, 100 + s);
+            if (s < 20) {
+                first.put("S" + s, bars.slice(0, bars.size() - 5));
+            }
+            second.put("S" + s, bars);
+        }
+        IndicatorEngine engine = new IndicatorEngine(INDICATORS);
+
+        engine.updateAll(first);
+        Map<String, List<IndicatorSeries>> results = engine.updateAll(second);
+        assertEquals(second.keySet(), results.keySet());
+        second.forEach((symbol, bars) ->
+                assertSameOutputs(IndicatorEngine.compute(bars, INDICATORS), results.get(symbol)));
+    }
+
+    // A random walk of daily bars
+    private static PriceSeries randomBars(Random random, int count) {
+        PriceSeries bars = new PriceSeries(count);
+        double price = 100;
+        for (int i = 0; i < count; i++) {
+            double open = price;
+            double close = Math.max(1, open + random.nextGaussian());
+            double high = Math.max(open, close) + random.nextDouble();
+            double low = Math.min(open, close) - random.nextDouble();
+            bars.append(START + i * DAY, open, high, low, close, 1_000 + random.nextInt(100_000));
+            price = close;
+        }
+        return bars;
+    }
+
+    // Running sums may round differently from a fresh pass, but only in the last few digits
+    private static void assertSameOutputs(List<IndicatorSeries> expected, List<IndicatorSeries> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int k = 0; k < expected.size(); k++) {
+            IndicatorSeries want = expected.get(k);
+            IndicatorSeries got = actual.get(k);
+            assertEquals(want.size(), got.size(), want.getName(0));
+            for (int line = 0; line < want.lines(); line++) {
+                for (int i = 0; i < want.size(); i++) {
+                    double value = want.get(line, i);
+                    double tolerance = Double.isNaN(value) ? 0 : 1e-9 * Math.max(1, Math.abs(value));
+                    assertEquals(value, got.get(line, i), tolerance,
+                            want.getName(line) + " at bar " + i);
+                }
+            }
+        }
+    }
+}
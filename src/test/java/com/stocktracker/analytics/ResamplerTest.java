@@ -0,0 +1,157 @@
+package com.stocktracker.analytics;
+
+import com.stocktracker.analytics.Resampler.Interval;
+import com.stocktracker.analytics.Resampler.Session;
+import com.stocktracker.models.PriceSeries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResamplerTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 4);
+
+    // The minutes either side of the open and the close each land in their own bar. Pre-market
+    // buckets count back from 9:30, so 9:29 closes a bar rather than sharing one with 9:30,
+    // and post-market buckets count on from 16:00.
+    @ParameterizedTest
+    @CsvSource({
+            "ONE_MINUTE,      09:29, 09:30, 15:59, 16:00",
+            "FIVE_MINUTES,    09:25, 09:30, 15:55, 16:00",
+            "FIFTEEN_MINUTES, 09:15, 09:30, 15:45, 16:00",
+            "ONE_HOUR,        08:30, 09:30, 15:30, 16:00"
+    })
+    void sessionEdgesStartNewBars(Interval interval, LocalTime preMarket, LocalTime open,
+                                  LocalTime lastRegular, LocalTime postMarket) {
+        PriceSeries minutes = minutes("09:29", "09:30", "15:59", "16:00");
+
+        assertEquals(List.of(at(preMarket), at(open), at(lastRegular), at(postMarket)),
+                times(Resampler.resample(minutes, interval, Session.EXTENDED)));
+        assertEquals(List.of(at(open), at(lastRegular)),
+                times(Resampler.resample(minutes, interval, Session.REGULAR)));
+    }
+
+    @Test
+    void dailyBarsKeepOrDropTheExtendedMinutes() {
+        PriceSeries minutes = minutes("09:29", "09:30", "15:59", "16:00");
+
+        PriceSeries extended = Resampler.resample(minutes, Interval.ONE_DAY, Session.EXTENDED);
+        assertEquals(List.of(DAY.atStartOfDay()), times(extended));
+        assertEquals(4, extended.getVolume(0));
+
+        PriceSeries regular = Resampler.resample(minutes, Interval.ONE_DAY, Session.REGULAR);
+        assertEquals(List.of(DAY.atStartOfDay()), times(regular));
+        assertEquals(2, regular.getVolume(0));
+        assertEquals(open("09:30"), regular.getOpen(0));
+        assertEquals(close("15:59"), regular.getClose(0));
+    }
+
+    @Test
+    void lastHourlyBarRunsFromHalfPastThreeToTheClose() {
+        PriceSeries minutes = new PriceSeries();
+        for (LocalTime time = LocalTime.of(14, 30); time.isBefore(LocalTime.of(16, 0)); time = time.plusMinutes(1)) {
+            append(minutes, time);
+        }
+
+        PriceSeries hours = Resampler.resample(minutes, Interval.ONE_HOUR, Session.REGULAR);
+        assertEquals(List.of(at("14:30"), at("15:30")), times(hours));
+        assertEquals(60, hours.getVolume(0));
+        assertEquals(30, hours.getVolume(1));
+        assertEquals(open("15:30"), hours.getOpen(1));
+        assertEquals(close("15:59"), hours.getClose(1));
+    }
+
+    @Test
+    void aggregatesOpenHighLowCloseAndVolume() {
+        Resampler resampler = new Resampler(Interval.FIVE_MINUTES, Session.REGULAR);
+        assertTrue(resampler.add(epoch("09:30"), 10, 11, 9.5, 10.5, 100));
+        assertFalse(resampler.add(epoch("09:31"), 10.5, 13, 10, 12, 200));
+        assertFalse(resampler.add(epoch("09:34"), 12, 12.5, 8, 9, 300));
+        assertTrue(resampler.add(epoch("09:35"), 9, 9, 9, 9, 1));
+
+        PriceSeries bars = resampler.bars();
+        assertEquals(2, bars.size());
+        assertEquals(10, bars.getOpen(0));
+        assertEquals(13, bars.getHigh(0));
+        assertEquals(8, bars.getLow(0));
+        assertEquals(9, bars.getClose(0));
+        assertEquals(600, bars.getVolume(0));
+    }
+
+    @Test
+    void minutesOutsideTheRegularSessionAreSkipped() {
+        Resampler resampler = new Resampler(Interval.FIVE_MINUTES, Session.REGULAR);
+        assertFalse(resampler.add(epoch("09:29"), 1, 1, 1, 1, 1));
+        assertFalse(resampler.add(epoch("16:00"), 1, 1, 1, 1, 1));
+        assertTrue(resampler.bars().isEmpty());
+    }
+
+    @Test
+    void rejectsMinutesOutOfOrder() {
+        Resampler resampler = new Resampler(Interval.ONE_MINUTE, Session.EXTENDED);
+        resampler.add(epoch("09:31"), 1, 1, 1, 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> resampler.add(epoch("09:31"), 1, 1, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> resampler.add(epoch("09:30"), 1, 1, 1, 1, 1));
+    }
+
+    // One bar per minute, each with a volume of 1 and prices derived from the time
+    private static PriceSeries minutes(String... times) {
+        PriceSeries minutes = new PriceSeries();
+        for (String time : times) {
+            append(minutes, LocalTime.parse(time));
+        }
+        return minutes;
+    }
+
+    private static void append(PriceSeries minutes, LocalTime time) {
+        double open = open(time);
+        minutes.append(epoch(time), open, open + 1, open - 1, open + 0.5, 1);
+    }
+
+    private static double open(String time) {
+        return open(LocalTime.parse(time));
+    }
+
+    private static double open(LocalTime time) {
+        return 100 + time.toSecondOfDay() / 60 * 0.01;
+    }
+
+    private static double close(String time) {
+        return open(time) + 0.5;
+    }
+
+    private static long epoch(String time) {
+        return epoch(LocalTime.parse(time));
+    }
+
+    private static long epoch(LocalTime time) {
+        return DAY.atTime(time).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime at(String time) {
+        return at(LocalTime.parse(time));
+    }
+
+    private static LocalDateTime at(LocalTime time) {
+        return DAY.atTime(time);
+    }
+
+    private static List<LocalDateTime> times(PriceSeries bars) {
+        List<LocalDateTime> times = new ArrayList<>();
+        for (int i = 0; i < bars.size(); i++) {
+            times.add(bars.getTimestamp(i));
+        }
+        return times;
+    }
+}
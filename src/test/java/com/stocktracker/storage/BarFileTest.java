@@ -0,0 +1,178 @@
+package com.stocktracker.storage;
+
+import com.stocktracker.models.PriceSeries;
+import com.stocktracker.models.StockData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BarFileTest {
+    // Bars one STEP apart, so times between two bars can be probed too
+    private static final long START = 1_700_000_000L;
+    private static final long STEP = 60;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsEveryField() throws IOException {
+        Path path = directory.resolve("AAPL.bars");
+        PriceSeries bars = bars(0, 3 * BarFile.INDEX_INTERVAL + 5);
+        BarFile.write(path, bars);
+
+        BarFile file = BarFile.open(path, true);
+        assertEquals(bars.size(), file.size());
+        assertSameBars(bars, file.read(0, file.size()));
+        assertSameBars(bars.slice(10, 100), file.read(10, 100));
+    }
+
+    @Test
+    void roundTripsAnEmptySeries() throws IOException {
+        Path path = directory.resolve("EMPTY.bars");
+        BarFile.write(path, new PriceSeries());
+
+        BarFile file = BarFile.open(path, true);
+        assertEquals(0, file.size());
+        assertEquals(0, file.lowerBound(START));
+    }
+
+    @Test
+    void appendReplacesTheLastBarAndAddsNewerOnes() throws IOException {
+        Path path = directory.resolve("MSFT.bars");
+        int stored = BarFile.INDEX_INTERVAL - 2;
+        BarFile.write(path, bars(0, stored));
+
+        // The stored last bar revised, plus enough new ones to start another index block.
+        // Older bars in the update are ignored.
+        PriceSeries update = new PriceSeries();
+        update.append(timeOf(stored - 2), 1, 1, 1, 1, 1);
+        update.append(timeOf(stored - 1), 500, 510, 490, 505, 9_999);
+        for (int i = stored; i < stored + 5; i++) {
+            update.append(bar(i));
+        }
+        assertEquals(6, BarFile.append(path, update));
+
+        BarFile file = BarFile.open(path, true);
+        assertEquals(stored + 5, file.size());
+        PriceSeries read = file.read(0, file.size());
+        assertSameBars(bars(0, stored - 1), read.slice(0, stored - 1));
+        assertEquals(505, read.getClose(stored - 1));
+        assertEquals(9_999, read.getVolume(stored - 1));
+        assertSameBars(bars(stored, stored + 5), read.slice(stored, stored + 5));
+        assertEquals(BarFile.INDEX_INTERVAL, file.lowerBound(timeOf(BarFile.INDEX_INTERVAL)));
+    }
+
+    @Test
+    void appendWithNothingNewerLeavesTheFileAlone() throws IOException {
+        Path path = directory.resolve("IBM.bars");
+        BarFile.write(path, bars(0, 10));
+        byte[] before = Files.readAllBytes(path);
+
+        assertEquals(0, BarFile.append(path, bars(0, 9)));
+        assertArrayEquals(before, Files.readAllBytes(path));
+    }
+
+    @Test
+    void rejectsAFileWithATruncatedTrailer() throws IOException {
+        Path path = directory.resolve("TSLA.bars");
+        BarFile.write(path, bars(0, 100));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        assertThrows(BarFile.CorruptBarFileException.class, () -> BarFile.open(path, false));
+    }
+
+    @Test
+    void rejectsAFileCutBetweenRecordsAndTrailer() throws IOException {
+        Path path = directory.resolve("NVDA.bars");
+        BarFile.write(path, bars(0, 100));
+        // As if a crash hit after the records but before the index and trailer were written
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(BarFile.HEADER_SIZE + 100L * BarFile.RECORD_SIZE);
+        }
+
+        assertThrows(BarFile.CorruptBarFileException.class, () -> BarFile.open(path, false));
+    }
+
+    @Test
+    void checksumCatchesAFlippedByteOnlyWhenVerifying() throws IOException {
+        Path path = directory.resolve("AMZN.bars");
+        BarFile.write(path, bars(0, 100));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long offset = BarFile.HEADER_SIZE + 50L * BarFile.RECORD_SIZE + 8;
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, offset);
+            one.put(0, (byte) (one.get(0) ^ 0x01)).rewind();
+            channel.write(one, offset);
+        }
+
+        assertEquals(100, BarFile.open(path, false).size());
+        assertThrows(BarFile.CorruptBarFileException.class, () -> BarFile.open(path, true));
+    }
+
+    @Test
+    void lowerBoundMatchesALinearScanAcrossIndexBlocks() throws IOException {
+        Path path = directory.resolve("SPY.bars");
+        int count = 4 * BarFile.INDEX_INTERVAL + 7;
+        BarFile.write(path, bars(0, count));
+        BarFile file = BarFile.open(path, true);
+
+        for (int i = -1; i <= count; i++) {
+            long time = timeOf(i);
+            assertEquals(linearLowerBound(count, time), file.lowerBound(time), "at bar " + i);
+            assertEquals(linearLowerBound(count, time + 1), file.lowerBound(time + 1), "just after bar " + i);
+            assertEquals(linearLowerBound(count, time - 1), file.lowerBound(time - 1), "just before bar " + i);
+        }
+        assertEquals(0, file.lowerBound(Long.MIN_VALUE));
+        assertEquals(count, file.lowerBound(Long.MAX_VALUE));
+    }
+
+    private static int linearLowerBound(int count, long time) {
+        int i = 0;
+        while (i < count && timeOf(i) < time) {
+            i++;
+        }
+        return i;
+    }
+
+    private static PriceSeries bars(int from, int to) {
+        PriceSeries bars = new PriceSeries(Math.max(to - from, 1));
+        for (int i = from; i < to; i++) {
+            bars.append(bar(i));
+        }
+        return bars;
+    }
+
+    private static StockData bar(int i) {
+        double open = 100 + i * 0.25;
+        return new StockData(StockData.fromEpochSecond(timeOf(i)),
+                open, open + 1.5, open - 0.75, open + 0.5, 1_000L + i);
+    }
+
+    private static long timeOf(int i) {
+        return START + i * STEP;
+    }
+
+    private static void assertSameBars(PriceSeries expected, PriceSeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTime(i), actual.getTime(i), "time of bar " + i);
+            assertEquals(expected.getOpen(i), actual.getOpen(i), "open of bar " + i);
+            assertEquals(expected.getHigh(i), actual.getHigh(i), "high of bar " + i);
+            assertEquals(expected.getLow(i), actual.getLow(i), "low of bar " + i);
+            assertEquals(expected.getClose(i), actual.getClose(i), "close of bar " + i);
+            assertEquals(expected.getVolume(i), actual.getVolume(i), "volume of bar " + i);
+        }
+    }
+}